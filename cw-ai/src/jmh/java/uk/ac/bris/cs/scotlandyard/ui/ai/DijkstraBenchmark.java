@@ -0,0 +1,70 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    The detectives' shortest path to where MrX was last seen, as Rick used to work it out for
+    every detective move, against the precomputed Distances lookup that replaced it, for each
+    position of the corpus in turn
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DijkstraBenchmark {
+    private Board[] boards;
+    private Integer[] destinations;
+    private int[] sources;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        final List<Board> boards = new ArrayList<>();
+        final List<Integer> destinations = new ArrayList<>();
+        for (final Board board : Positions.detectives()) {
+            Positions.lastReveal(board).ifPresent(location -> {
+                boards.add(board);
+                destinations.add(location);
+            });
+        }
+        this.boards = boards.toArray(new Board[0]);
+        this.destinations = destinations.toArray(new Integer[0]);
+        this.sources = boards.stream()
+                .mapToInt(board -> board.getAvailableMoves().iterator().next().source()).toArray();
+        Distances.of(this.boards[0].getSetup());
+    }
+
+    @Benchmark
+    public LinkedList<Node> executeDijkstra() {
+        if (++next >= boards.length) next = 0;
+        return new DetectiveFindsMrX(new MrXBelief(), new HashMap<>())
+                .executeDijkstra(boards[next], destinations[next]);
+    }
+
+    @Benchmark
+    public int[] nextHopsToward() {
+        if (++next >= boards.length) next = 0;
+        final GameSetup setup = boards[next].getSetup();
+        return Distances.of(setup).nextHopsToward(PrimitiveGraph.of(setup), sources[next], destinations[next]);
+    }
+}
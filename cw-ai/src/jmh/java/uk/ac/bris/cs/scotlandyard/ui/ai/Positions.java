@@ -0,0 +1,86 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Random;
+
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/*
+    The fixed corpus of mid-game positions the benchmarks run on: seeded random playouts with
+    five detectives on the standard map, so every run measures the same positions. A game gives
+    one position with MrX to move and one with the detectives to move for each of ROUNDS
+*/
+final class Positions {
+    static final ImmutableSet<Integer> ROUNDS = ImmutableSet.of(3, 6, 9, 12, 15);
+    private static final int GAMES = 32;
+    private static final int DETECTIVES = 5;
+
+    private Positions() {}
+
+    static ImmutableList<Board> mrX() throws IOException { return corpus(true); }
+
+    static ImmutableList<Board> detectives() throws IOException { return corpus(false); }
+
+    /*
+        Where MrX was last seen, if he has been
+    */
+    static Optional<Integer> lastReveal(@Nonnull final Board board) {
+        Optional<Integer> location = Optional.empty();
+        for (final LogEntry entry : board.getMrXTravelLog()) {
+            if (entry.location().isPresent()) location = entry.location();
+        }
+        return location;
+    }
+
+    private static ImmutableList<Board> corpus(final boolean mrX) throws IOException {
+        final GameSetup setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+        final var corpus = ImmutableList.<Board>builder();
+        for (int seed = 0; seed < GAMES; seed++) {
+            final Random random = new Random(seed);
+            final var locations = ScotlandYard.generateDetectiveLocations(seed, DETECTIVES);
+            final var detectives = ImmutableList.<Player>builder();
+            for (int i = 0; i < DETECTIVES; i++) {
+                detectives.add(new Player(ScotlandYard.DETECTIVES.asList().get(i),
+                        ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+            }
+            GameState state = new MyGameStateFactory().build(setup, new Player(MRX,
+                    ScotlandYard.defaultMrXTickets(), ScotlandYard.generateMrXLocation(seed)), detectives.build());
+            int taken = -1;
+            while (state.getWinner().isEmpty()) {
+                final ImmutableList<Move> moves = moves(state, random);
+                final boolean mrXToMove = moves.get(0).commencedBy().equals(MRX);
+                final int round = state.getMrXTravelLog().size() - (mrXToMove ? 0 : 1);
+                if (mrXToMove == mrX && round != taken && ROUNDS.contains(round)) {
+                    corpus.add(state);
+                    taken = round;
+                }
+                state = state.advance(moves.get(random.nextInt(moves.size())));
+            }
+        }
+        return corpus.build();
+    }
+
+    /*
+        Doubles far outnumber single moves, so picking from every move would spend MrX's doubles
+        in the first rounds; he only gets to pick from them one time in four
+    */
+    private static ImmutableList<Move> moves(final GameState state, final Random random) {
+        final boolean doubles = random.nextInt(4) == 0;
+        return state.getAvailableMoves().stream()
+                .filter(move -> doubles || move.visit(new Move.FunctionalVisitor<>(m -> true, m -> false)))
+                .collect(ImmutableList.toImmutableList());
+    }
+}
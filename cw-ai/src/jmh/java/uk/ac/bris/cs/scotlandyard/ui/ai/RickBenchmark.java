@@ -0,0 +1,54 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    Rick picking a move for each position of the corpus in turn. Rick remembers where MrX
+    has been seen, so every pick gets a new one, seeded the same each time
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class RickBenchmark {
+    private static final long SEED = 42;
+
+    private final AtomicBoolean terminate = new AtomicBoolean(false);
+    private Board[] mrX;
+    private Board[] detectives;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        mrX = Positions.mrX().toArray(new Board[0]);
+        detectives = Positions.detectives().toArray(new Board[0]);
+    }
+
+    private Board next(final Board[] boards) {
+        if (++next >= boards.length) next = 0;
+        return boards[next];
+    }
+
+    @Benchmark
+    public Move pickMoveMrX() { return new Rick(SEED).pickMove(next(mrX), terminate); }
+
+    @Benchmark
+    public Move pickMoveDetective() { return new Rick(SEED).pickMove(next(detectives), terminate); }
+}
@@ -1,8 +1,8 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
 import uk.ac.bris.cs.scotlandyard.model.Board;
-import uk.ac.bris.cs.scotlandyard.model.LogEntry;
 import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
 
 import javax.annotation.Nonnull;
 import java.util.*;
@@ -10,42 +10,41 @@ import java.util.*;
 public class DetectiveFindsMrX {
     private List<Node> nodes;
     private List<Edge> edges;
-    private final List<Integer> mrXReveal;
+    private final MrXBelief belief;
     private final Map<Move, Integer> score;
 
-    protected DetectiveFindsMrX(final List<Integer> mrXReveal,
+    protected DetectiveFindsMrX(final MrXBelief belief,
                                 final Map<Move, Integer> score) {
-        this.mrXReveal = mrXReveal;
+        this.belief = belief;
         this.score = score;
     }
 
     public final Map<Move, Integer> getScore() { return score; }
     /*
-        Only updates the detective's move score if mrX has revealed his location
+        Only updates the detective's move score if mrX has revealed his location, scoring
+        against every node he could have moved on to since, as the belief has it after
+        update(board)
     */
     protected void updateDetectiveScore(@Nonnull final Board board, final Move move,
-                                        final LinkedList<Node> shortestPath) {
-        checkIfMrXRevealedLocation(board);
-        if(!mrXReveal.isEmpty()) {
-            //Nodes adjacent to move's source
-            final var nodesA = board.getSetup().graph.adjacentNodes(move.source());
-            //nodes adjacent to move's destination
-            final Set<Integer> nodesB = board.getSetup()
-                    .graph.adjacentNodes(move.visit(new Move.Visitor<>() {
-                        @Override
-                        public Integer visit(Move.SingleMove move) {
-                            return move.destination;
-                        }
+                                        final TicketPaths paths) {
+        if(belief.revealed()) {
+            final PrimitiveGraph graph = PrimitiveGraph.of(board.getSetup());
+            final int destination = move.visit(new Move.Visitor<>() {
+                @Override
+                public Integer visit(Move.SingleMove move) {
+                    return move.destination;
+                }
 
-                        @Override
-                        public Integer visit(Move.DoubleMove move) {
-                            return move.destination2;
-                        }
-                    }));
+                @Override
+                public Integer visit(Move.DoubleMove move) {
+                    return move.destination2;
+                }
+            });
 
-            checkShortestPath(move, shortestPath);
-            checkIfNodesAdjacentHaveMrX(move, nodesA);
-            checkIfNodesAdjacentHaveMrX(move, nodesB);
+            checkShortestPath(board, move, destination, paths);
+            //Nodes adjacent to move's source, then nodes adjacent to move's destination
+            checkIfNodesAdjacentHaveMrX(graph, move, move.source());
+            checkIfNodesAdjacentHaveMrX(graph, move, destination);
         }
     }
     /*
@@ -63,7 +62,7 @@ public class DetectiveFindsMrX {
 
         Graph graph = new Graph(edges);
         DijkstraAlgorithm dijkstra = new DijkstraAlgorithm(graph);
-        //if the source node isn't node 1, null pointer exception may be returned hence, we used node 1
+        //the edges only go from lower to higher nodes, so node 1 is the one that reaches the most
         dijkstra.execute(nodes.get(0));
 
         for(final Node dest : nodes) {
@@ -77,11 +76,17 @@ public class DetectiveFindsMrX {
     }
 
     private void createEdges(@Nonnull final Board board, final int nodesNo) {
+        final PrimitiveGraph graph = PrimitiveGraph.of(board.getSetup());
+        final int[] higher = new int[nodesNo];
         for(int i = 1; i < nodesNo+1; i++) {
-            for(int j = i+1; j < nodesNo+1; j++) {
-                if(!board.getSetup().graph.hasEdgeConnecting(i, j)) continue;
-                addEdges("Edge_" + i, i-1, j-1);
+            // neighbours above i, in ascending order as the edges have always been added
+            int count = 0;
+            for (int edge = graph.start(i), end = graph.end(i); edge < end; edge++) {
+                final int j = graph.target(edge);
+                if (j > i && j < nodesNo+1) higher[count++] = j;
             }
+            Arrays.sort(higher, 0, count);
+            for (int k = 0; k < count; k++) addEdges("Edge_" + i, i-1, higher[k]-1);
         }
     }
 
@@ -101,38 +106,23 @@ public class DetectiveFindsMrX {
         edges.add(a);
     }
 
-    protected void checkIfMrXRevealedLocation(@Nonnull final Board board) {
-        if (!board.getMrXTravelLog().isEmpty()) {
-            for (final LogEntry reveal : board.getMrXTravelLog()) {
-                if(reveal.location().isPresent()
-                        && !mrXReveal.contains(reveal.location().get())) {
-                    mrXReveal.add(reveal.location().get());
-                }
-            }
-        }
-    }
     /*
-        checks if a move's destination node is equal to any node in
-        the returned linkedList of shortestPath, if so, score for the move is increased
-        by 1
+        checks if a move takes the detective one turn closer to the nearest node mrX could
+        be on with the tickets it has left, if so, score for the move is increased by 1
     */
-    private void checkShortestPath(final Move m,
-                                   final LinkedList<Node> shortestPath) {
-        if(!shortestPath.isEmpty()) {
-            for (final Node node : shortestPath) {
-                if (node.getId() == m.source()) continue;
-                if (m.visit(new Move.Visitor<>() {
-                    @Override
-                    public Integer visit(Move.SingleMove move) {
-                        return move.destination;
-                    }
-
-                    @Override
-                    public Integer visit(Move.DoubleMove move) {
-                        return move.destination2;
-                    }
-                }) == node.getId()) {
+    private void checkShortestPath(@Nonnull final Board board, final Move m,
+                                   final int destination, final TicketPaths paths) {
+        final int[] mrXLocations = belief.locations();
+        final Board.TicketBoard tickets = board.getPlayerTickets(m.commencedBy()).orElseThrow();
+        int turns = TicketPaths.UNREACHABLE;
+        for (final int location : mrXLocations)
+            turns = Math.min(turns, paths.turns(m.source(), tickets, location));
+        if (turns == TicketPaths.UNREACHABLE || turns == 0) return;
+        for (final ScotlandYard.Ticket used : m.tickets()) {
+            for (final int location : mrXLocations) {
+                if (paths.turnsAfter(destination, tickets, used, location) == turns - 1) {
                     increaseScoreValue(m);
+                    return;
                 }
             }
         }
@@ -145,17 +135,15 @@ public class DetectiveFindsMrX {
     }
     /*
         this will check nodes adjacent to the source and nodes adjacent to the
-        move's destination if mrX is there
+        move's destination if mrX could be there, scoring once however many of them
+        he could be on
     */
-    private void checkIfNodesAdjacentHaveMrX(final Move move, final Set<Integer> n) {
-        Integer value = score.getOrDefault(move, 1);
-        for (final int a : n) {
-            Integer mrXLocation = mrXReveal.get(mrXReveal.size() - 1);
-            if(mrXLocation == a) {
-                if(score.containsKey(move)) {
-                    value++;
-                }
-                score.put(move, value);
+    private void checkIfNodesAdjacentHaveMrX(final PrimitiveGraph graph, final Move move,
+                                             final int node) {
+        for (int edge = graph.start(node), end = graph.end(node); edge < end; edge++) {
+            if(belief.isPossible(graph.target(edge))) {
+                increaseScoreValue(move);
+                return;
             }
         }
     }
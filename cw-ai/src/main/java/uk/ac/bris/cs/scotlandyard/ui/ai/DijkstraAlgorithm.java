@@ -3,115 +3,71 @@ package uk.ac.bris.cs.scotlandyard.ui.ai;
 import java.util.*;
 
 /*
-    It only finds shortest distance from node 1 to 98 accessible nodes since we
-    used a directed graph. Hence, if mrX location is a node that isn't part of the 98,
-    getPath(); will return 1 node(mrXLocation).
+    The Node/Edge API over PrimitiveDijkstra. The graph's edges are directed, from source to
+    destination, so with the edges DetectiveFindsMrX builds, which only go from lower to higher
+    nodes, node 1 reaches 98 nodes. Nodes are told apart by identity, as they always were, and
+    numbered in the order the edges first mention them; any of them can be the source.
     Credit to : https://www.vogella.com/tutorials/JavaAlgorithmsDijkstra/article.html
 */
 public class DijkstraAlgorithm {
-    private final List<Edge> edges;
-    private Set<Node> visitedNodes;
-    private Set<Node> unvisitedNodes;
-    private Map<Node, Node> previousNodes;
-    private Map<Node, Integer> distance;
+    private final Map<Node, Integer> indices = new IdentityHashMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+    private final PrimitiveDijkstra dijkstra;
+    // whether the last source reached any node but itself
+    private boolean reached;
 
     DijkstraAlgorithm(final Graph graph) {
-        // create a copy of the array to use
-        this.edges = new ArrayList<>(graph.getEdges());
-    }
-    /*
-        finds minimum distance from source node which is node 1
-        to 98 accessible nodes and stores the values in distance field
-    */
-    public void execute(final Node source) {
-        visitedNodes = new HashSet<>();
-        unvisitedNodes = new HashSet<>();
-        distance = new HashMap<>();
-        previousNodes = new HashMap<>();
-        distance.put(source, 0);
-        unvisitedNodes.add(source);
-        while (unvisitedNodes.size() > 0) {
-            Node node = getMinimum(unvisitedNodes);
-            visitedNodes.add(node);
-            unvisitedNodes.remove(node);
-            findMinimalDistances(node);
-        }
-    }
-
-    private void findMinimalDistances(final Node node) {
-        List<Node> adjacentNodes = getAdjacentNodes(node);
-        for (final Node target : adjacentNodes) {
-            if (getShortestDistance(target) > getShortestDistance(node)
-                    + getDistance(node, target)) {
-                distance.put(target, getShortestDistance(node)
-                        + getDistance(node, target));
-                previousNodes.put(target, node);
-                unvisitedNodes.add(target);
-            }
-        }
-
-    }
-
-    private int getDistance(final Node node, final Node target) {
+        final List<Edge> edges = graph.getEdges();
         for (final Edge edge : edges) {
-            if (edge.getSource().equals(node)
-                    && edge.getDestination().equals(target)) {
-                return edge.getWeight();
-            }
+            index(edge.getSource());
+            index(edge.getDestination());
         }
-        throw new RuntimeException();
-    }
-
-    private List<Node> getAdjacentNodes(final Node node) {
-        List<Node> adjacent = new ArrayList<>();
+        final int[] offsets = new int[nodes.size() + 1];
+        for (final Edge edge : edges) offsets[indices.get(edge.getSource()) + 1]++;
+        for (int i = 0; i < nodes.size(); i++) offsets[i + 1] += offsets[i];
+        final int[] next = Arrays.copyOf(offsets, nodes.size());
+        final int[] targets = new int[edges.size()];
+        final int[] weights = new int[edges.size()];
         for (final Edge edge : edges) {
-            if (edge.getSource().equals(node)
-                    && !isVisited(edge.getDestination())) {
-                adjacent.add(edge.getDestination());
-            }
+            final int slot = next[indices.get(edge.getSource())]++;
+            targets[slot] = indices.get(edge.getDestination());
+            weights[slot] = edge.getWeight();
         }
-        return adjacent;
+        this.dijkstra = new PrimitiveDijkstra(offsets, targets, weights);
     }
 
-    private Node getMinimum(final Set<Node> nodes) {
-        Node minimum = null;
-        for (final Node node : nodes) {
-            if (minimum == null) {
-                minimum = node;
-            } else {
-                if (getShortestDistance(node) < getShortestDistance(minimum)) {
-                    minimum = node;
-                }
-            }
+    /*
+        finds minimum distance from the source node to every node it reaches
+    */
+    public void execute(final Node source) {
+        final Integer index = indices.get(source);
+        reached = false;
+        if (index == null) return;
+        dijkstra.execute(index);
+        for (int i = 0; i < nodes.size() && !reached; i++) {
+            reached = i != index && dijkstra.distance(i) != PrimitiveDijkstra.UNREACHABLE;
         }
-        return minimum;
-    }
-
-    private boolean isVisited(final Node node) {
-        return visitedNodes.contains(node);
-    }
-
-    private int getShortestDistance(final Node destination) {
-        Integer d = distance.get(destination);
-        return Objects.requireNonNullElse(d, Integer.MAX_VALUE);
     }
 
+    /*
+        The nodes from the source to the target, both included. A target the source doesn't
+        reach gives just the target, and a source that reaches nothing gives an empty path
+    */
     public LinkedList<Node> getPath(final Node target) {
-        LinkedList<Node> path = new LinkedList<>();
-        if(!previousNodes.entrySet().isEmpty()) {
-            Node step = target;
-            path.add(step);
-            for (final var p : previousNodes.entrySet()) {
-                if (p.getKey().equals(step)) {
-                    step = previousNodes.get(step);
-                    path.add(step);
-
-                }
-            }
-            Collections.reverse(path);
+        final LinkedList<Node> path = new LinkedList<>();
+        if (!reached) return path;
+        final Integer index = indices.get(target);
+        if (index == null || dijkstra.distance(index) == PrimitiveDijkstra.UNREACHABLE) {
+            path.add(target);
+            return path;
         }
-        // Put it into the correct order
+        for (final int step : dijkstra.path(index)) path.add(nodes.get(step));
         return path;
     }
 
-}
\ No newline at end of file
+    private void index(final Node node) {
+        if (indices.containsKey(node)) return;
+        indices.put(node, nodes.size());
+        nodes.add(node);
+    }
+}
@@ -0,0 +1,142 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.MapMaker;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
+
+/*
+    Hop distances between every pair of nodes, over every edge, over the edges of each
+    transport alone and over the edges detectives can take. They are worked out once per graph,
+    by a breadth first search from every node run in parallel, and kept in one flat short array
+    of layers: layer 0 is every edge, layer 1 + ordinal is one transport's edges and the last
+    layer is every edge with a transport a detective has tickets for, so no ferries. Each layer
+    is nodeBound() rows of nodeBound() entries, so a lookup is one array read. Pairs with no
+    path between them are UNREACHABLE.
+
+    The tables are kept for as long as their PrimitiveGraph, which is the cache key, so they
+    don't hold on to the graph; the methods that walk its edges are handed it. MapAnalytics
+    holds the same layers for the standard map, and they are copied from it rather than
+    searched for when it is given
+*/
+public final class Distances {
+    public static final int UNREACHABLE = Short.MAX_VALUE;
+
+    private static final ConcurrentMap<PrimitiveGraph, Distances> CACHE =
+            new MapMaker().weakKeys().makeMap(); // weak keys compare by identity
+    private static final int DETECTIVE_LAYER = 1 + Transport.values().length;
+    private static final int LAYERS = DETECTIVE_LAYER + 1;
+    // the transports a detective can take, as a bit mask
+    private static final int DETECTIVE_TRANSPORTS = Arrays.stream(Transport.values())
+            .filter(t -> t.requiredTicket() != Ticket.SECRET)
+            .mapToInt(t -> 1 << t.ordinal()).reduce(0, (a, b) -> a | b);
+
+    private final int bound;
+    private final short[] distances;
+
+    private Distances(final PrimitiveGraph graph) {
+        this.bound = graph.nodeBound();
+        this.distances = new short[LAYERS * bound * bound];
+        Arrays.fill(distances, (short) UNREACHABLE);
+        IntStream.range(0, LAYERS * bound).parallel().forEach(row -> search(graph, row / bound, row % bound));
+    }
+
+    private Distances(final MapAnalytics analytics) {
+        this.bound = analytics.nodeBound();
+        this.distances = analytics.distances();
+    }
+
+    public static Distances of(@Nonnull final GameSetup setup) {
+        return CACHE.computeIfAbsent(PrimitiveGraph.of(setup), Distances::new);
+    }
+
+    /*
+        As of(setup), but if the tables aren't kept yet and the analytics were made from the
+        setup's graph, they are copied from the analytics
+    */
+    public static Distances of(@Nonnull final GameSetup setup, @Nonnull final MapAnalytics analytics) {
+        return CACHE.computeIfAbsent(PrimitiveGraph.of(setup),
+                graph -> analytics.isFor(graph) ? new Distances(analytics) : new Distances(graph));
+    }
+
+    /*
+        Fewest edges of any transport from a to b
+    */
+    public int distance(final int a, final int b) { return distances[index(0, a, b)]; }
+
+    /*
+        Fewest edges of the transport alone from a to b
+    */
+    public int distance(final int a, final int b, @Nonnull final Transport transport) {
+        return distances[index(1 + transport.ordinal(), a, b)];
+    }
+
+    /*
+        Fewest edges from a to b with the transports detectives can take, which leaves out
+        ferries
+    */
+    public int detectiveDistance(final int a, final int b) { return distances[index(DETECTIVE_LAYER, a, b)]; }
+
+    /*
+        The neighbours of a one edge closer to b, in the graph's order; none if a is b or b can't
+        be reached. A node has only a handful of neighbours, so this is a scan of a's edges with
+        one lookup each. The graph has to be the one the distances were worked out on
+    */
+    public int[] nextHopsToward(@Nonnull final PrimitiveGraph graph, final int a, final int b) {
+        checkGraph(graph);
+        final int remaining = distance(a, b);
+        if (remaining == 0 || remaining == UNREACHABLE) return new int[0];
+        final int[] hops = new int[graph.degree(a)];
+        int count = 0;
+        for (int edge = graph.start(a), end = graph.end(a); edge < end; edge++) {
+            final int target = graph.target(edge);
+            if (distance(target, b) == remaining - 1) hops[count++] = target;
+        }
+        return Arrays.copyOf(hops, count);
+    }
+
+    /*
+        Whether the step from a to its neighbour next is on a shortest path to b
+    */
+    public boolean isNextHopToward(@Nonnull final PrimitiveGraph graph, final int a, final int next, final int b) {
+        checkGraph(graph);
+        final int remaining = distance(a, b);
+        return remaining != 0 && remaining != UNREACHABLE
+                && distance(next, b) == remaining - 1 && graph.hasEdge(a, next);
+    }
+
+    private void checkGraph(final PrimitiveGraph graph) {
+        if (graph.nodeBound() != bound)
+            throw new IllegalArgumentException("Distances are for " + bound + " nodes, not " + graph.nodeBound());
+    }
+
+    private int index(final int layer, final int a, final int b) {
+        if (a < 0 || a >= bound || b < 0 || b >= bound)
+            throw new IllegalArgumentException("No node " + (a < 0 || a >= bound ? a : b));
+        return (layer * bound + a) * bound + b;
+    }
+
+    private void search(final PrimitiveGraph graph, final int layer, final int source) {
+        final int mask = layer == 0 ? -1 : layer == DETECTIVE_LAYER ? DETECTIVE_TRANSPORTS : 1 << (layer - 1);
+        final int row = (layer * bound + source) * bound;
+        final int[] queue = new int[bound];
+        int head = 0;
+        int tail = 0;
+        distances[row + source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            final int node = queue[head++];
+            for (int edge = graph.start(node), end = graph.end(node); edge < end; edge++) {
+                final int target = graph.target(edge);
+                if ((graph.transports(edge) & mask) == 0 || distances[row + target] != UNREACHABLE) continue;
+                distances[row + target] = (short) (distances[row + node] + 1);
+                queue[tail++] = target;
+            }
+        }
+    }
+}
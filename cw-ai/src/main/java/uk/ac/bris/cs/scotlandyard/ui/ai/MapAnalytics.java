@@ -0,0 +1,298 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.io.Resources;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/*
+    Tables about a map that never change between runs, read from a file MapAnalyticsGenerator
+    writes and memory mapped rather than worked out again by every AI. The file is, big endian:
+
+        0   int     magic, "SYMA"
+        4   int     VERSION
+        8   int     nodeBound n, one more than the largest node
+        12  int     w, the longs in one node set
+        16  long    CRC32 of the graph text the tables were made from
+        24  long    CRC32 of everything after the header
+        32  short   hop distances as in Distances: every edge, then each Transport alone,
+                    then the edges detectives can take, each n rows of n
+            long    for each node, then each of TICKETS, the set of nodes one move away
+                    with that ticket, as w longs
+            float   closeness of each node
+            float   betweenness of each node
+
+    A file that is missing, of another version, damaged, or made from a graph other than the
+    one given is written again before it is mapped.
+
+    The standard map's file is kept per user, under the user's home directory, unless the
+    map.analytics system property names another; it is only read and written by the user who
+    made it
+*/
+public final class MapAnalytics {
+    public static final int UNREACHABLE = Distances.UNREACHABLE;
+
+    static final int MAGIC = 0x53594D41;
+    static final int VERSION = 2;
+    static final int HEADER = 32;
+    static final int LAYERS = 2 + Transport.values().length;
+    static final String PATH_PROPERTY = "map.analytics";
+    static final Ticket[] TICKETS = {Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND, Ticket.SECRET};
+
+    private static volatile MapAnalytics standard;
+    private static volatile boolean unavailable;
+
+    private final MappedByteBuffer buffer;
+    private final int bound;
+    private final int words;
+    private final int reachOffset;
+    private final int closenessOffset;
+    private final int betweennessOffset;
+
+    private MapAnalytics(final MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.bound = buffer.getInt(8);
+        this.words = buffer.getInt(12);
+        this.reachOffset = HEADER + LAYERS * bound * bound * Short.BYTES;
+        this.closenessOffset = reachOffset + bound * TICKETS.length * words * Long.BYTES;
+        this.betweennessOffset = closenessOffset + bound * Float.BYTES;
+    }
+
+    /*
+        The standard map's tables, from standardPath(), mapped on first use
+    */
+    public static MapAnalytics standard() {
+        MapAnalytics result = standard;
+        if (result == null) {
+            synchronized (MapAnalytics.class) {
+                result = standard;
+                if (result == null) {
+                    try {
+                        standard = result = open(standardPath(), standardGraphText());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /*
+        The standard map's tables as standard(), or empty if the file can neither be read nor
+        written, which is only tried once, so the AIs can work the tables out themselves instead
+    */
+    public static Optional<MapAnalytics> tryStandard() {
+        if (unavailable) return Optional.empty();
+        try {
+            return Optional.of(standard());
+        } catch (UncheckedIOException e) {
+            unavailable = true;
+            System.err.println("Map analytics unavailable, working them out instead: " + e.getCause());
+            return Optional.empty();
+        }
+    }
+
+    /*
+        Maps the tables in the file, writing it first if it doesn't hold the graph's tables
+    */
+    public static MapAnalytics open(@Nonnull final Path file, @Nonnull final String graphText) throws IOException {
+        final long checksum = checksum(graphText);
+        MappedByteBuffer buffer = map(file, checksum);
+        if (buffer == null) {
+            MapAnalyticsGenerator.write(graphText, file);
+            buffer = map(file, checksum);
+            if (buffer == null) throw new IOException(file + " doesn't hold the tables just written to it");
+        }
+        return new MapAnalytics(buffer);
+    }
+
+    static Path standardPath() {
+        final String path = System.getProperty(PATH_PROPERTY);
+        if (path != null) return Path.of(path);
+        return Path.of(System.getProperty("user.home"), ".cache", "scotlandyard", "map-analytics.bin");
+    }
+
+    static String standardGraphText() throws IOException {
+        return Resources.toString(Resources.getResource("graph.txt"), StandardCharsets.UTF_8);
+    }
+
+    public int nodeBound() { return bound; }
+
+    /*
+        Fewest edges of any transport from a to b, as Distances.distance(a, b)
+    */
+    public int distance(final int a, final int b) { return distance(0, a, b); }
+
+    /*
+        Fewest edges of the transport alone from a to b
+    */
+    public int distance(final int a, final int b, @Nonnull final Transport transport) {
+        return distance(1 + transport.ordinal(), a, b);
+    }
+
+    /*
+        Fewest edges from a to b with the transports detectives can take, as
+        Distances.detectiveDistance(a, b)
+    */
+    public int detectiveDistance(final int a, final int b) { return distance(LAYERS - 1, a, b); }
+
+    /*
+        Whether the tables were made from the graph: the same nodes, and for each transport
+        an edge exactly where its distance layer has a distance of 1
+    */
+    public boolean isFor(@Nonnull final PrimitiveGraph graph) {
+        if (graph.nodeBound() != bound) return false;
+        final int[] edges = new int[Transport.values().length];
+        for (int a = 0; a < bound; a++) {
+            Arrays.fill(edges, 0);
+            for (int edge = graph.start(a), end = graph.end(a); edge < end; edge++) {
+                for (final Transport t : Transport.values()) {
+                    if ((graph.transports(edge) & 1 << t.ordinal()) == 0) continue;
+                    if (distance(a, graph.target(edge), t) != 1) return false;
+                    edges[t.ordinal()]++;
+                }
+            }
+            for (final Transport t : Transport.values()) {
+                int ones = 0;
+                for (int b = 0; b < bound; b++) {
+                    if (distance(a, b, t) == 1) ones++;
+                }
+                if (ones != edges[t.ordinal()]) return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+        Every distance layer, laid out as Distances keeps them
+    */
+    short[] distances() {
+        final short[] distances = new short[LAYERS * bound * bound];
+        buffer.duplicate().position(HEADER).asShortBuffer().get(distances);
+        return distances;
+    }
+
+    /*
+        Whether one move with the ticket takes a player from a to b. A SECRET takes any
+        transport and a DOUBLE takes none
+    */
+    public boolean isReachable(final int a, @Nonnull final Ticket ticket, final int b) {
+        check(a);
+        check(b);
+        final int index = ticketIndex(ticket);
+        if (index < 0) return false;
+        return (buffer.getLong(reachOffset + ((a * TICKETS.length + index) * words + (b >>> 6)) * Long.BYTES)
+                & 1L << b) != 0;
+    }
+
+    /*
+        The nodes one move with the ticket takes a player from a to, in order
+    */
+    public int[] reachable(final int a, @Nonnull final Ticket ticket) {
+        check(a);
+        final int index = ticketIndex(ticket);
+        if (index < 0) return new int[0];
+        final int base = reachOffset + (a * TICKETS.length + index) * words * Long.BYTES;
+        int count = 0;
+        for (int w = 0; w < words; w++) count += Long.bitCount(buffer.getLong(base + w * Long.BYTES));
+        final int[] nodes = new int[count];
+        for (int w = 0, i = 0; w < words; w++) {
+            for (long word = buffer.getLong(base + w * Long.BYTES); word != 0; word &= word - 1)
+                nodes[i++] = w << 6 | Long.numberOfTrailingZeros(word);
+        }
+        return nodes;
+    }
+
+    /*
+        How many other nodes the node reaches over the sum of the hops to them
+    */
+    public float closeness(final int node) {
+        check(node);
+        return buffer.getFloat(closenessOffset + node * Float.BYTES);
+    }
+
+    /*
+        How many shortest paths between other nodes run through the node
+    */
+    public float betweenness(final int node) {
+        check(node);
+        return buffer.getFloat(betweennessOffset + node * Float.BYTES);
+    }
+
+    static long checksum(final String graphText) {
+        final CRC32 crc = new CRC32();
+        crc.update(graphText.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    static int words(final int bound) { return (bound + 63) >>> 6; }
+
+    static int size(final int bound) {
+        return HEADER + LAYERS * bound * bound * Short.BYTES
+                + bound * TICKETS.length * words(bound) * Long.BYTES + 2 * bound * Float.BYTES;
+    }
+
+    /*
+        The transports, as a bit mask, a ticket in TICKETS can take
+    */
+    static int transports(final int ticket) {
+        if (TICKETS[ticket] == Ticket.SECRET) return (1 << Transport.values().length) - 1;
+        int mask = 0;
+        for (final Transport t : Transport.values()) {
+            if (t.requiredTicket() == TICKETS[ticket]) mask |= 1 << t.ordinal();
+        }
+        return mask;
+    }
+
+    private int distance(final int layer, final int a, final int b) {
+        check(a);
+        check(b);
+        return buffer.getShort(HEADER + ((layer * bound + a) * bound + b) * Short.BYTES);
+    }
+
+    private void check(final int node) {
+        if (node < 0 || node >= bound) throw new IllegalArgumentException("No node " + node);
+    }
+
+    private static int ticketIndex(final Ticket ticket) {
+        for (int i = 0; i < TICKETS.length; i++) {
+            if (TICKETS[i] == ticket) return i;
+        }
+        return -1;
+    }
+
+    /*
+        The file mapped, or null if it is missing or doesn't hold valid tables for the graph
+    */
+    private static MappedByteBuffer map(final Path file, final long graphChecksum) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER || channel.size() > Integer.MAX_VALUE) return null;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getLong(16) != graphChecksum) return null;
+        final int bound = buffer.getInt(8);
+        if (bound < 0 || buffer.getInt(12) != words(bound) || buffer.capacity() != size(bound)) return null;
+        final ByteBuffer payload = buffer.duplicate().position(HEADER);
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue() == buffer.getLong(24) ? buffer : null;
+    }
+}
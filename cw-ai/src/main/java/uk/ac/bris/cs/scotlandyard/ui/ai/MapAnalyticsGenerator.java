@@ -0,0 +1,167 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.ImmutableValueGraph;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/*
+    Writes the MapAnalytics artifact for a graph, in the layout MapAnalytics describes, derived
+    from the graph's text through ScotlandYard.readGraph. The file is written next to its final
+    name and moved into place, so a reader never maps half of one.
+
+    Run on its own, it writes the standard map's artifact to the path given, or to
+    MapAnalytics.standardPath() without one
+*/
+public final class MapAnalyticsGenerator {
+
+    private MapAnalyticsGenerator() {}
+
+    public static void main(final String[] args) throws IOException {
+        final Path out = args.length > 0 ? Path.of(args[0]) : MapAnalytics.standardPath();
+        write(MapAnalytics.standardGraphText(), out);
+        System.out.println("Wrote " + out + " (" + Files.size(out) + " bytes)");
+    }
+
+    /*
+        Derives the tables from the graph text and writes them to out, replacing what is there
+    */
+    public static void write(@Nonnull final String graphText, @Nonnull final Path out) throws IOException {
+        final ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph = ScotlandYard.readGraph(graphText);
+        final GameSetup setup = new GameSetup(graph, ScotlandYard.STANDARD24ROUNDS);
+        final PrimitiveGraph primitive = PrimitiveGraph.of(setup);
+        final Distances distances = Distances.of(setup);
+        final int bound = primitive.nodeBound();
+        final int words = MapAnalytics.words(bound);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(MapAnalytics.size(bound));
+        buffer.position(MapAnalytics.HEADER);
+        for (int layer = 0; layer < MapAnalytics.LAYERS; layer++) {
+            for (int a = 0; a < bound; a++) {
+                for (int b = 0; b < bound; b++) {
+                    buffer.putShort((short) (layer == 0 ? distances.distance(a, b)
+                            : layer == MapAnalytics.LAYERS - 1 ? distances.detectiveDistance(a, b)
+                            : distances.distance(a, b, Transport.values()[layer - 1])));
+                }
+            }
+        }
+        final long[] reach = new long[words];
+        for (int node = 0; node < bound; node++) {
+            for (int ticket = 0; ticket < MapAnalytics.TICKETS.length; ticket++) {
+                Arrays.fill(reach, 0);
+                for (int edge = primitive.start(node), end = primitive.end(node); edge < end; edge++) {
+                    if ((primitive.transports(edge) & MapAnalytics.transports(ticket)) == 0) continue;
+                    reach[primitive.target(edge) >>> 6] |= 1L << primitive.target(edge);
+                }
+                for (final long word : reach) buffer.putLong(word);
+            }
+        }
+        for (final float closeness : closeness(graph, distances, bound)) buffer.putFloat(closeness);
+        for (final float betweenness : betweenness(graph, primitive, bound)) buffer.putFloat(betweenness);
+
+        final CRC32 payload = new CRC32();
+        payload.update(buffer.array(), MapAnalytics.HEADER, buffer.capacity() - MapAnalytics.HEADER);
+        buffer.putInt(0, MapAnalytics.MAGIC);
+        buffer.putInt(4, MapAnalytics.VERSION);
+        buffer.putInt(8, bound);
+        buffer.putInt(12, words);
+        buffer.putLong(16, MapAnalytics.checksum(graphText));
+        buffer.putLong(24, payload.getValue());
+
+        final Path directory = out.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temporary = Files.createTempFile(directory, out.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                buffer.rewind();
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(temporary, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /*
+        For each node, how many other nodes it reaches over the sum of the hops to them, so
+        nodes close to everything score highest; 0 for a node reaching nothing
+    */
+    private static float[] closeness(final ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
+                                     final Distances distances, final int bound) {
+        final float[] closeness = new float[bound];
+        for (final int a : graph.nodes()) {
+            long sum = 0;
+            int reached = 0;
+            for (final int b : graph.nodes()) {
+                final int d = distances.distance(a, b);
+                if (a == b || d == Distances.UNREACHABLE) continue;
+                sum += d;
+                reached++;
+            }
+            closeness[a] = sum == 0 ? 0 : (float) reached / sum;
+        }
+        return closeness;
+    }
+
+    /*
+        For each node, how many shortest paths between other nodes run through it, by Brandes'
+        algorithm with every edge counting as one hop. Each pair of nodes is counted once
+    */
+    private static float[] betweenness(final ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph,
+                                       final PrimitiveGraph primitive, final int bound) {
+        final double[] betweenness = new double[bound];
+        final int[] stack = new int[bound];
+        final int[] queue = new int[bound];
+        final int[] hops = new int[bound];
+        final double[] paths = new double[bound];
+        final double[] dependency = new double[bound];
+        for (final int source : graph.nodes()) {
+            Arrays.fill(hops, -1);
+            Arrays.fill(paths, 0);
+            Arrays.fill(dependency, 0);
+            int stacked = 0;
+            int head = 0;
+            int tail = 0;
+            hops[source] = 0;
+            paths[source] = 1;
+            queue[tail++] = source;
+            while (head < tail) {
+                final int node = queue[head++];
+                stack[stacked++] = node;
+                for (int edge = primitive.start(node), end = primitive.end(node); edge < end; edge++) {
+                    final int target = primitive.target(edge);
+                    if (hops[target] < 0) {
+                        hops[target] = hops[node] + 1;
+                        queue[tail++] = target;
+                    }
+                    if (hops[target] == hops[node] + 1) paths[target] += paths[node];
+                }
+            }
+            while (stacked > 0) {
+                final int node = stack[--stacked];
+                for (int edge = primitive.start(node), end = primitive.end(node); edge < end; edge++) {
+                    final int previous = primitive.target(edge);
+                    if (hops[previous] == hops[node] - 1)
+                        dependency[previous] += paths[previous] / paths[node] * (1 + dependency[node]);
+                }
+                if (node != source) betweenness[node] += dependency[node];
+            }
+        }
+        final float[] halved = new float[bound];
+        for (int node = 0; node < bound; node++) halved[node] = (float) (betweenness[node] / 2);
+        return halved;
+    }
+}
@@ -0,0 +1,172 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    MrX by Monte Carlo tree search: a SearchTree is grown below MrX's available moves until the
+    think time is up, and the root move tried most is played. Detectives in the search see where
+    MrX is, so it is cautious rather than hopeful.
+
+    The search is root parallel: each thread grows a tree of its own from a seed of its own, and
+    their root visits are added up at the end, so nothing is shared while searching and
+    iterations grow with the thread budget. The helper threads come from one pool per instance,
+    kept between moves and let go after a minute idle or on onTerminate.
+
+    The terminate flag is polled as well, but both the UI and the headless runner only raise it
+    once the move has already timed out, so the think time has to stay below the game's
+    timeout; the default is a third of the 30 seconds the UI starts with. Detectives are played
+    by Rick.
+
+    Instances made by the UI and the headless runners, which only use the no-argument and seed
+    constructors, take their budget from the ai.threads system property, every core if it is
+    unset, and their think time from mcts.thinkMillis. TournamentRunner sets ai.threads so the
+    games it plays at once share the cores between them.
+
+    The distances the playouts steer by are copied from the standard map's MapAnalytics when the
+    game is on that map. The file is checked, and written if need be, in onStart, or before the
+    first move if onStart isn't called
+*/
+public class Mcts implements Ai {
+    static final Duration THINK_TIME = Duration.ofSeconds(10);
+    static final String THREADS_PROPERTY = "ai.threads";
+    static final String THINK_TIME_PROPERTY = "mcts.thinkMillis";
+    private static final Duration IDLE_TIME = Duration.ofMinutes(1);
+
+    private final Random random;
+    private final Duration thinkTime;
+    private final int threads;
+    private final Rick detectives;
+    private ThreadPoolExecutor workers;
+
+    public Mcts() { this(new Random(), thinkTime(), threads(), new Rick()); }
+
+    public Mcts(final long seed) { this(seed, thinkTime()); }
+
+    public Mcts(final long seed, @Nonnull final Duration thinkTime) { this(seed, thinkTime, threads()); }
+
+    /*
+        The clock decides how many iterations are played, so even a seeded Mcts can pick
+        differently from one run to the next
+    */
+    public Mcts(final long seed, @Nonnull final Duration thinkTime, final int threads) {
+        this(new Random(seed), thinkTime, threads, new Rick(seed));
+    }
+
+    private Mcts(final Random random, final Duration thinkTime, final int threads, final Rick detectives) {
+        if (thinkTime.isNegative() || thinkTime.isZero())
+            throw new IllegalArgumentException("Think time must be positive, not " + thinkTime);
+        if (threads < 1) throw new IllegalArgumentException("Threads " + threads + " is less than 1");
+        this.random = random;
+        this.thinkTime = Objects.requireNonNull(thinkTime);
+        this.threads = threads;
+        this.detectives = detectives;
+    }
+
+    @Nonnull
+    @Override
+    public String name() { return "Mcts"; }
+
+    @Override
+    public void onStart() { MapAnalytics.tryStandard(); }
+
+    @Override
+    public synchronized void onTerminate() {
+        if (workers != null) workers.shutdownNow();
+        workers = null;
+    }
+
+    @Nonnull
+    @Override
+    public Move pickMove(@Nonnull final Board board, @Nonnull final AtomicBoolean terminate) {
+        final long deadline = System.nanoTime() + thinkTime.toNanos();
+        final var moves = board.getAvailableMoves().asList();
+        if (!moves.get(0).commencedBy().isMrX()) return detectives.pickMove(board, terminate);
+        // fills the cache SimulatedGame takes its distances from
+        MapAnalytics.tryStandard().ifPresent(analytics -> Distances.of(board.getSetup(), analytics));
+        final SimulatedGame root = SimulatedGame.of(board, moves.get(0).source());
+        final List<Move> candidates = new ArrayList<>(moves.size());
+        final int[] packed = new int[moves.size()];
+        for (final Move move : moves) {
+            final int p = root.encode(move);
+            if (p < 0) continue;
+            packed[candidates.size()] = p;
+            candidates.add(move);
+        }
+        if (candidates.size() <= 1) return candidates.isEmpty() ? moves.get(0) : candidates.get(0);
+        final int[] rootMoves = Arrays.copyOf(packed, candidates.size());
+        final int[] visits = search(root, rootMoves, deadline, terminate);
+        int best = 0;
+        for (int i = 1; i < visits.length; i++) {
+            if (visits[i] > visits[best]) best = i;
+        }
+        return candidates.get(best);
+    }
+
+    /*
+        The calling thread grows one tree and the rest of the budget grows the others. If the
+        calling thread is interrupted, only its own tree counts, and the others stop at the
+        deadline
+    */
+    private int[] search(final SimulatedGame root, final int[] rootMoves,
+                         final long deadline, final AtomicBoolean terminate) {
+        final SearchTree own = new SearchTree(root, rootMoves, new Random(random.nextLong()));
+        if (threads == 1) return own.search(deadline, terminate);
+        final ExecutorService workers = workers();
+        try {
+            final List<Future<int[]>> others = new ArrayList<>(threads - 1);
+            for (int i = 1; i < threads; i++) {
+                final SearchTree tree = new SearchTree(root, rootMoves, new Random(random.nextLong()));
+                others.add(workers.submit(() -> tree.search(deadline, terminate)));
+            }
+            final int[] visits = own.search(deadline, terminate);
+            for (final Future<int[]> other : others) {
+                final int[] counts = other.get();
+                for (int i = 0; i < visits.length; i++) visits[i] += counts[i];
+            }
+            return visits;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return own.visits();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private synchronized ExecutorService workers() {
+        if (workers == null) {
+            workers = new ThreadPoolExecutor(threads - 1, threads - 1,
+                    IDLE_TIME.toMillis(), TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("mcts-%d").setDaemon(true).build());
+            workers.allowCoreThreadTimeOut(true);
+        }
+        return workers;
+    }
+
+    private static int threads() {
+        return Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static Duration thinkTime() {
+        return Duration.ofMillis(Long.getLong(THINK_TIME_PROPERTY, THINK_TIME.toMillis()));
+    }
+}
@@ -0,0 +1,210 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/*
+    The nodes MrX could be on, as a bitset over the graph's nodes, kept up to date from his
+    travel log. Each new entry either collapses the set to the revealed node or moves it one step
+    along the edges the logged ticket can take, a SECRET taking any of them, ferries included.
+    After that the nodes detectives stand on are taken out, since MrX would have been caught
+    there. Only entries not seen before are read, so each update costs one pass over the edges
+    per new entry rather than a replay of the log.
+
+    Two entries arriving in one update are taken to be a double. Some models log both halves
+    with the second ticket, and the final location on a reveal, so the first step takes any
+    transport, and a reveal in either half is only collapsed to once the pair has been read: to
+    the second half's node, or to the first half's node together with the nodes the second
+    ticket takes it to, which holds wherever that model put the reveal.
+
+    If a log the tracker can't follow still leaves no node possible, the set falls back to every
+    node within as many steps, by any transport, of the last reveal as entries have been logged
+    since, rather than staying empty until the next one.
+
+    Before the first entry MrX could be on any node. A board whose log is shorter than the
+    entries already read, whose detectives hold more tickets than at the last update, which they
+    never do within a game, or which is on another graph, is taken to be a new game
+*/
+public final class MrXBelief {
+    private static final int[] TRANSPORTS = new int[Ticket.values().length];
+    private static final int ANY = (1 << Transport.values().length) - 1;
+
+    static {
+        for (final Transport t : Transport.values())
+            TRANSPORTS[t.requiredTicket().ordinal()] |= 1 << t.ordinal();
+        TRANSPORTS[Ticket.SECRET.ordinal()] = ANY;
+    }
+
+    private PrimitiveGraph graph;
+    private long[] possible = new long[0];
+    private long[] next = new long[0];
+    private int seen;
+    // the last revealed node, -1 before the first reveal, and the entries logged after it
+    private int reveal;
+    private int sinceReveal;
+    private int detectiveTickets;
+
+    /*
+        Reads the log entries added since the last update
+    */
+    public void update(@Nonnull final Board board) {
+        final var log = board.getMrXTravelLog();
+        final int tickets = detectiveTickets(board);
+        if (PrimitiveGraph.of(board.getSetup()) != graph || log.size() < seen || tickets > detectiveTickets)
+            reset(board.getSetup());
+        detectiveTickets = tickets;
+        if (log.size() - seen == 2) {
+            addDouble(log.get(seen), log.get(seen + 1));
+            seen += 2;
+        }
+        for (; seen < log.size(); seen++) add(log.get(seen));
+        removeDetectives(board);
+        if (size() == 0) {
+            fallBack(board.getSetup());
+            removeDetectives(board);
+        }
+    }
+
+    public boolean isPossible(final int node) {
+        return graph != null && node >= 0 && node < graph.nodeBound()
+                && (possible[node >>> 6] & 1L << node) != 0;
+    }
+
+    /*
+        Whether MrX has shown his location since the game the tracker follows began
+    */
+    public boolean revealed() {
+        return reveal >= 0;
+    }
+
+    /*
+        How many nodes MrX could be on
+    */
+    public int size() {
+        int size = 0;
+        for (final long word : possible) size += Long.bitCount(word);
+        return size;
+    }
+
+    /*
+        The nodes MrX could be on, in ascending order
+    */
+    public int[] locations() {
+        final int[] locations = new int[size()];
+        int i = 0;
+        for (int w = 0; w < possible.length; w++) {
+            for (long word = possible[w]; word != 0; word &= word - 1)
+                locations[i++] = w << 6 | Long.numberOfTrailingZeros(word);
+        }
+        return locations;
+    }
+
+    private void reset(final GameSetup setup) {
+        this.graph = PrimitiveGraph.of(setup);
+        final int words = (graph.nodeBound() + 63) >>> 6;
+        possible = new long[words];
+        next = new long[words];
+        for (final int node : setup.graph.nodes()) possible[node >>> 6] |= 1L << node;
+        seen = 0;
+        reveal = -1;
+        sinceReveal = 0;
+    }
+
+    private void add(final LogEntry entry) {
+        if (entry.location().isPresent()) collapse(entry.location().get());
+        else {
+            step(TRANSPORTS[entry.ticket().ordinal()]);
+            sinceReveal++;
+        }
+    }
+
+    private void addDouble(final LogEntry first, final LogEntry second) {
+        step(ANY);
+        if (second.location().isPresent()) collapse(second.location().get());
+        else if (first.location().isPresent()) {
+            collapse(first.location().get());
+            step(TRANSPORTS[second.ticket().ordinal()]);
+            possible[reveal >>> 6] |= 1L << reveal;
+            sinceReveal = 1;
+        } else {
+            step(TRANSPORTS[second.ticket().ordinal()]);
+            sinceReveal += 2;
+        }
+    }
+
+    private void collapse(final int node) {
+        Arrays.fill(possible, 0);
+        possible[node >>> 6] |= 1L << node;
+        reveal = node;
+        sinceReveal = 0;
+    }
+
+    /*
+        Every node within sinceReveal steps of the last reveal, or every node before one
+    */
+    private void fallBack(final GameSetup setup) {
+        if (reveal < 0) {
+            for (final int node : setup.graph.nodes()) possible[node >>> 6] |= 1L << node;
+            return;
+        }
+        Arrays.fill(possible, 0);
+        possible[reveal >>> 6] |= 1L << reveal;
+        for (int i = 0; i < sinceReveal; i++) {
+            final long[] before = possible.clone();
+            step(ANY);
+            for (int w = 0; w < possible.length; w++) possible[w] |= before[w];
+        }
+    }
+
+    private static int detectiveTickets(final Board board) {
+        int tickets = 0;
+        for (final Piece piece : board.getPlayers()) {
+            if (piece.isDetective()) {
+                final var held = board.getPlayerTickets(piece);
+                if (held.isPresent()) {
+                    for (final Ticket ticket : Ticket.values()) tickets += held.get().getCount(ticket);
+                }
+            }
+        }
+        return tickets;
+    }
+
+    private void removeDetectives(final Board board) {
+        for (final Piece piece : board.getPlayers()) {
+            if (piece.isDetective()) board.getDetectiveLocation((Piece.Detective) piece)
+                    .ifPresent(location -> clear(possible, location));
+        }
+    }
+
+    /*
+        Moves every possible node one edge along the transports
+    */
+    private void step(final int transports) {
+        Arrays.fill(next, 0);
+        for (int w = 0; w < possible.length; w++) {
+            for (long word = possible[w]; word != 0; word &= word - 1) {
+                final int node = w << 6 | Long.numberOfTrailingZeros(word);
+                for (int edge = graph.start(node), end = graph.end(node); edge < end; edge++) {
+                    if ((graph.transports(edge) & transports) != 0) {
+                        final int target = graph.target(edge);
+                        next[target >>> 6] |= 1L << target;
+                    }
+                }
+            }
+        }
+        final long[] swap = possible;
+        possible = next;
+        next = swap;
+    }
+
+    private static void clear(final long[] bits, final int node) {
+        if (node >>> 6 < bits.length) bits[node >>> 6] &= ~(1L << node);
+    }
+}
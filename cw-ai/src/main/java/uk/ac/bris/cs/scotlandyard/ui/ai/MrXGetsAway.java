@@ -7,9 +7,7 @@ import uk.ac.bris.cs.scotlandyard.model.Piece;
 import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
 
 import javax.annotation.Nonnull;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
 public class MrXGetsAway {
 
@@ -20,37 +18,25 @@ public class MrXGetsAway {
     public final Map<Move, Integer> getScore() { return score; }
 
     protected void updateMrXScore(@Nonnull final Board board, final Move move) {
-        //nodes adjacent to move's source
-        final var nodesA = board.getSetup().graph.adjacentNodes(move.source());
-        //nodes adjacent to move's destination
-        final var nodesB = board.getSetup()
-                .graph.adjacentNodes(move.visit(new Move.Visitor<>() {
-                    @Override
-                    public Integer visit(Move.SingleMove move) {
-                        return move.destination;
-                    }
-
-                    @Override
-                    public Integer visit(Move.DoubleMove move) {
-                        return move.destination2;
-                    }
-                }));
+        final PrimitiveGraph graph = PrimitiveGraph.of(board.getSetup());
         final ImmutableSet<Piece> detectives = board.getPlayers().stream()
                 .dropWhile(Piece::isMrX).collect(ImmutableSet.toImmutableSet());
 
-        detectives.stream().forEach(d -> checkVariousConditions(board, move, nodesA, nodesB, (Detective) d));
+        //nodes adjacent to move's source and to move's destination
+        detectives.stream().forEach(d -> checkVariousConditions(board, graph, move,
+                move.source(), destinationOf(move), (Detective) d));
     }
 
-    private void checkVariousConditions(@Nonnull final Board board, final Move move,
-                                        final Set<Integer> a, final Set<Integer> b,
+    private void checkVariousConditions(@Nonnull final Board board, final PrimitiveGraph graph,
+                                        final Move move, final int a, final int b,
                                         final Detective d) {
-        final Integer location = board.getDetectiveLocation(d).get();
+        final int location = board.getDetectiveLocation(d).get();
         final var moves = board.getAvailableMoves().asList();
 
-        checkDetectiveLocation(move, a, location);
-        checkDetectiveLocation(move, b, location);
-        moves.stream().forEach(x -> checkNumberOfAdjacentNodes(board, move, a, x));
-        moves.stream().forEach(x -> checkNumberOfAdjacentNodes(board, move, b, x));
+        checkDetectiveLocation(graph, move, a, location);
+        checkDetectiveLocation(graph, move, b, location);
+        moves.stream().forEach(x -> checkNumberOfAdjacentNodes(graph, move, graph.degree(a), x));
+        moves.stream().forEach(x -> checkNumberOfAdjacentNodes(graph, move, graph.degree(b), x));
     }
     /*
         If mrX move source or destination node has more adjacent nodes, then the score for that move
@@ -58,10 +44,18 @@ public class MrXGetsAway {
         (checkDetectiveLocation();), the value for that move is
         decreased by 1
     */
-    private void checkNumberOfAdjacentNodes(@Nonnull final Board board, final Move move,
-                                            final Set<Integer> set, final Move x) {
-        //contains second iteration of moves, adjacent nodes to its destination
-        final var nodesA = board.getSetup().graph.adjacentNodes( x.visit(new Move.Visitor<>() {
+    private void checkNumberOfAdjacentNodes(final PrimitiveGraph graph, final Move move,
+                                            final int degree, final Move x) {
+        //number of nodes adjacent to the second iteration of moves' destination
+        final int destinationDegree = graph.degree(destinationOf(x));
+        if (degree > graph.degree(x.source())) increaseScoreValue(move);
+        else if (degree < graph.degree(x.source())) increaseScoreValue(x);
+        if(degree > destinationDegree) increaseScoreValue(move);
+        else if (degree < destinationDegree) increaseScoreValue(x);
+    }
+
+    private static int destinationOf(final Move move) {
+        return move.visit(new Move.Visitor<>() {
             @Override
             public Integer visit(Move.SingleMove move) {
                 return move.destination;
@@ -71,13 +65,7 @@ public class MrXGetsAway {
             public Integer visit(Move.DoubleMove move) {
                 return move.destination2;
             }
-        }));
-        if (set.size() > board.getSetup()
-                .graph.adjacentNodes(x.source()).size()) increaseScoreValue(move);
-        else if (set.size() < board.getSetup()
-                .graph.adjacentNodes(x.source()).size()) increaseScoreValue(x);
-        if(set.size() > nodesA.size()) increaseScoreValue(move);
-        else if (set.size() < nodesA.size()) increaseScoreValue(x);
+        });
     }
 
     private void increaseScoreValue(final Move move) {
@@ -88,10 +76,11 @@ public class MrXGetsAway {
     /*
         add to score value only if a detective isn't in that position
     */
-    private void checkDetectiveLocation(Move move, Set<Integer> set, Integer location) {
+    private void checkDetectiveLocation(final PrimitiveGraph graph, final Move move,
+                                        final int node, final int location) {
         Integer value = score.getOrDefault(move, 1);
-        for(final Integer w : set) {
-            if(location != w) increaseScoreValue(move);
+        for (int edge = graph.start(node), end = graph.end(node); edge < end; edge++) {
+            if(location != graph.target(edge)) increaseScoreValue(move);
             else {
                 if(score.containsKey(move)) value--;
                 score.put(move, value);
@@ -0,0 +1,176 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/*
+    Dijkstra's algorithm over a graph in compressed sparse row form: the edges leaving node n
+    are the indices from offsets[n] up to offsets[n + 1], each with a target and a non-negative
+    weight. The unsettled nodes sit in a binary heap indexed by node, so each step takes the
+    nearest in O(log n) and a shorter distance moves a node up in place instead of adding it
+    again. Every node remembers the one it was reached from, so a path is rebuilt in O(length).
+
+    One instance can be run from one source after another; the arrays are reused
+*/
+public final class PrimitiveDijkstra {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    // a transport cost for transports that can't be taken
+    public static final int UNUSABLE = -1;
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] distances;
+    private final int[] previous;
+    private final int[] heap;
+    // where each node is in the heap, -1 if it isn't
+    private final int[] positions;
+    private int size;
+    private int source = -1;
+
+    PrimitiveDijkstra(final int[] offsets, final int[] targets, final int[] weights) {
+        if (targets.length != weights.length || offsets.length == 0)
+            throw new IllegalArgumentException("Malformed graph");
+        final int nodes = offsets.length - 1;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.distances = new int[nodes];
+        this.previous = new int[nodes];
+        this.heap = new int[nodes];
+        this.positions = new int[nodes];
+    }
+
+    /*
+        The graph with each edge weighing what its cheapest usable transport costs, costs being
+        indexed by Transport ordinal. Edges with no usable transport are left out
+    */
+    public static PrimitiveDijkstra of(@Nonnull final PrimitiveGraph graph, @Nonnull final int[] costs) {
+        if (costs.length != Transport.values().length)
+            throw new IllegalArgumentException("Need a cost for each of " + Arrays.toString(Transport.values()));
+        final int nodes = graph.nodeBound();
+        final int[] offsets = new int[nodes + 1];
+        final int[] targets = new int[graph.end(nodes - 1)];
+        final int[] weights = new int[targets.length];
+        int edges = 0;
+        for (int node = 0; node < nodes; node++) {
+            offsets[node] = edges;
+            for (int edge = graph.start(node), end = graph.end(node); edge < end; edge++) {
+                int weight = UNREACHABLE;
+                for (int t = 0; t < costs.length; t++) {
+                    if ((graph.transports(edge) & 1 << t) != 0 && costs[t] != UNUSABLE) {
+                        if (costs[t] < 0) throw new IllegalArgumentException("Negative cost " + costs[t]);
+                        weight = Math.min(weight, costs[t]);
+                    }
+                }
+                if (weight == UNREACHABLE) continue;
+                targets[edges] = graph.target(edge);
+                weights[edges++] = weight;
+            }
+        }
+        offsets[nodes] = edges;
+        return new PrimitiveDijkstra(offsets, Arrays.copyOf(targets, edges), Arrays.copyOf(weights, edges));
+    }
+
+    public int nodeCount() { return distances.length; }
+
+    /*
+        Finds the shortest distance from the source to every node
+    */
+    public void execute(final int source) {
+        check(source);
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(previous, -1);
+        Arrays.fill(positions, -1);
+        size = 0;
+        this.source = source;
+        distances[source] = 0;
+        push(source);
+        while (size > 0) {
+            final int node = pop();
+            final int distance = distances[node];
+            for (int edge = offsets[node], end = offsets[node + 1]; edge < end; edge++) {
+                final int target = targets[edge];
+                final int through = distance + weights[edge];
+                if (through < 0 || through >= distances[target]) continue; // negative on overflow
+                final boolean queued = distances[target] != UNREACHABLE;
+                distances[target] = through;
+                previous[target] = node;
+                if (queued && positions[target] >= 0) up(positions[target]);
+                else if (!queued) push(target);
+            }
+        }
+    }
+
+    /*
+        The distance from the last source, UNREACHABLE if there is no path
+    */
+    public int distance(final int target) {
+        check(target);
+        if (source < 0) throw new IllegalStateException("Not executed yet");
+        return distances[target];
+    }
+
+    /*
+        The nodes from the last source to the target, both included; empty if there is no path
+    */
+    public int[] path(final int target) {
+        if (distance(target) == UNREACHABLE) return new int[0];
+        int length = 1;
+        for (int step = target; step != source; step = previous[step]) length++;
+        final int[] path = new int[length];
+        for (int step = target, i = length - 1; i >= 0; step = previous[step], i--) path[i] = step;
+        return path;
+    }
+
+    private void check(final int node) {
+        if (node < 0 || node >= distances.length) throw new IllegalArgumentException("No node " + node);
+    }
+
+    private void push(final int node) {
+        heap[size] = node;
+        positions[node] = size;
+        up(size++);
+    }
+
+    private int pop() {
+        final int top = heap[0];
+        positions[top] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            down(0);
+        }
+        return top;
+    }
+
+    private void up(int i) {
+        final int node = heap[i];
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (distances[heap[parent]] <= distances[node]) break;
+            heap[i] = heap[parent];
+            positions[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = node;
+        positions[node] = i;
+    }
+
+    private void down(int i) {
+        final int node = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && distances[heap[child + 1]] < distances[heap[child]]) child++;
+            if (distances[heap[child]] >= distances[node]) break;
+            heap[i] = heap[child];
+            positions[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = node;
+        positions[node] = i;
+    }
+}
@@ -0,0 +1,78 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import com.google.common.graph.ImmutableValueGraph;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+    The game graph in compressed sparse row form: the edges of a node are the indices from
+    start(node) up to end(node), each with a target node and a byte mask of transports
+    (one bit per Transport ordinal). Neighbours keep the order of the graph's adjacentNodes.
+    One is built per graph and shared between moves, so the AIs can walk the map with
+    plain array scans instead of hashing boxed nodes
+*/
+public final class PrimitiveGraph {
+    private static final ConcurrentMap<ImmutableValueGraph<Integer, ImmutableSet<Transport>>, PrimitiveGraph>
+            CACHE = new MapMaker().weakKeys().makeMap(); // weak keys compare by identity
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final byte[] transports;
+
+    private PrimitiveGraph(final ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+        int maxNode = -1;
+        for (final int node : graph.nodes()) maxNode = Math.max(maxNode, node);
+        offsets = new int[maxNode + 2];
+        int edges = 0;
+        for (int node = 0; node <= maxNode; node++) {
+            offsets[node] = edges;
+            if (graph.nodes().contains(node)) edges += graph.adjacentNodes(node).size();
+        }
+        offsets[maxNode + 1] = edges;
+        targets = new int[edges];
+        transports = new byte[edges];
+        for (final int node : graph.nodes()) {
+            int edge = offsets[node];
+            for (final int target : graph.adjacentNodes(node)) {
+                targets[edge] = target;
+                for (final Transport t : Objects.requireNonNull(graph
+                        .edgeValueOrDefault(node, target, ImmutableSet.of()))) {
+                    transports[edge] |= (byte) (1 << t.ordinal());
+                }
+                edge++;
+            }
+        }
+    }
+
+    public static PrimitiveGraph of(@Nonnull final GameSetup setup) {
+        return CACHE.computeIfAbsent(setup.graph, PrimitiveGraph::new);
+    }
+
+    /*
+        One more than the largest node, so arrays of this size can be indexed by node
+    */
+    public int nodeBound() { return offsets.length - 1; }
+
+    public int start(final int node) { return node < 0 || node >= nodeBound() ? 0 : offsets[node]; }
+
+    public int end(final int node) { return node < 0 || node >= nodeBound() ? 0 : offsets[node + 1]; }
+
+    public int degree(final int node) { return end(node) - start(node); }
+
+    public int target(final int edge) { return targets[edge]; }
+
+    public int transports(final int edge) { return transports[edge]; }
+
+    public boolean hasEdge(final int source, final int destination) {
+        for (int edge = start(source), end = end(source); edge < end; edge++) {
+            if (targets[edge] == destination) return true;
+        }
+        return false;
+    }
+}
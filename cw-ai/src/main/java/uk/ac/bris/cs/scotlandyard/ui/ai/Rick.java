@@ -1,6 +1,5 @@
 package uk.ac.bris.cs.scotlandyard.ui.ai;
 
-import javafx.application.Platform;
 import uk.ac.bris.cs.scotlandyard.model.Ai;
 import uk.ac.bris.cs.scotlandyard.model.Board;
 import uk.ac.bris.cs.scotlandyard.model.Move;
@@ -17,7 +16,16 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
 	didn't return a specific move, a random move is chosen
 */
 public class Rick implements Ai {
-	private final List<Integer> mrXReveal = new ArrayList<>();
+	private final MrXBelief belief = new MrXBelief();
+	private final Random random;
+
+	public Rick() { this.random = new Random(); }
+
+	/*
+		A seeded Rick makes the same choices every time it sees the same boards, which the
+		headless tournament relies on to replay games
+	*/
+	public Rick(final long seed) { this.random = new Random(seed); }
 
 	@Nonnull
 	@Override
@@ -29,8 +37,10 @@ public class Rick implements Ai {
 			@Nonnull final Board board,
 			@Nonnull final AtomicBoolean terminate) {
 		final var moves = board.getAvailableMoves().asList();
-		final Move move = moves.get(new Random().nextInt(moves.size()));
-		Map<Move, Integer> score = new HashMap<>();
+		final Move move = moves.get(random.nextInt(moves.size()));
+		// insertion ordered, so ties between scores are always broken the same way
+		Map<Move, Integer> score = new LinkedHashMap<>();
+		belief.update(board);
 
 		for (final Move m : moves) {
 			score = mrXMayWin(board, m, score);
@@ -99,14 +109,10 @@ public class Rick implements Ai {
 
 	private Map<Move, Integer> detectiveMayWin(@Nonnull final Board board, final Move m,
 											   final Map<Move, Integer> score) {
-		final DetectiveFindsMrX min = new DetectiveFindsMrX(mrXReveal, score);
-		min.checkIfMrXRevealedLocation(board);
+		final DetectiveFindsMrX min = new DetectiveFindsMrX(belief, score);
 		if (!m.commencedBy().equals(MRX)) {
-			if (!mrXReveal.isEmpty()) {
-				LinkedList<Node> shortestPath;
-				final Integer mrXLocation = mrXReveal.get(mrXReveal.size() - 1);
-				shortestPath = min.executeDijkstra(board, mrXLocation);
-				min.updateDetectiveScore(board, m, shortestPath);
+			if (belief.revealed()) {
+				min.updateDetectiveScore(board, m, TicketPaths.of(board.getSetup()));
 				return min.getScore();
 			}
 		}
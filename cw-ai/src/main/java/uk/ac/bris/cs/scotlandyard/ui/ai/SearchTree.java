@@ -0,0 +1,138 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    One Monte Carlo search tree below a fixed set of MrX moves. Each iteration walks down the tree
+    by UCB1, grows it by one node's moves once that node has been reached a few times, plays the
+    rest of the game out with cheap guided moves on a SimulatedGame and adds the result to every
+    node on the way. Detectives play as one side trying to make MrX lose.
+
+    A tree belongs to one thread; Mcts runs one per thread and adds up their root visits
+*/
+final class SearchTree {
+    private static final double EXPLORATION = 1.0;
+    // how many times a leaf is played out from before its moves are added to the tree
+    private static final int EXPANSION_VISITS = 4;
+    // iterations between checks of the clock and the terminate flag
+    private static final int BATCH = 64;
+
+    private final SimulatedGame root;
+    private final SimulatedGame game;
+    private final Node tree;
+    private final Random random;
+    private Node[] path = new Node[64];
+
+    /*
+        The root must have MrX to move, and the moves are the root's children in order
+    */
+    SearchTree(final SimulatedGame root, final int[] moves, final Random random) {
+        this.root = root;
+        this.game = root.copy();
+        this.tree = new Node(0, false);
+        this.tree.children = new Node[moves.length];
+        for (int i = 0; i < moves.length; i++) tree.children[i] = new Node(moves[i], true);
+        this.random = random;
+    }
+
+    /*
+        Searches until the deadline passes or terminate is raised, and returns how many times
+        each root move was tried
+    */
+    int[] search(final long deadline, final AtomicBoolean terminate) {
+        do {
+            for (int i = 0; i < BATCH; i++) iterate();
+        } while (!terminate.get() && System.nanoTime() < deadline);
+        return visits();
+    }
+
+    int[] visits() {
+        final int[] visits = new int[tree.children.length];
+        for (int i = 0; i < visits.length; i++) visits[i] = tree.children[i].visits;
+        return visits;
+    }
+
+    private void iterate() {
+        game.copyFrom(root);
+        int depth = 0;
+        Node node = tree;
+        path[depth++] = node;
+        while (node.children != null && game.winner() == SimulatedGame.NONE) {
+            node = select(node);
+            game.play(node.move);
+            depth = push(depth, node);
+        }
+        if (game.winner() == SimulatedGame.NONE && node.visits >= EXPANSION_VISITS) {
+            expand(node, game);
+            node = select(node);
+            game.play(node.move);
+            depth = push(depth, node);
+        }
+        final double reward = reward(game.playout(random), root.roundsLeft(), game.turns());
+        for (int i = 0; i < depth; i++) {
+            path[i].visits++;
+            path[i].mrXReward += reward;
+            path[i] = null;
+        }
+    }
+
+    /*
+        MrX winning is worth 1, and losing is worth more the more turns he got, up to a half, so
+        the search still has something to go on when every line loses. Turns rather than rounds,
+        or burning doubles would look like surviving
+    */
+    private static double reward(final int winner, final int roundsAtRoot, final int turns) {
+        if (winner == SimulatedGame.MRX_WINS) return 1;
+        return 0.5 * turns / (roundsAtRoot + 1);
+    }
+
+    private int push(final int depth, final Node node) {
+        if (depth == path.length) path = Arrays.copyOf(path, depth * 2);
+        path[depth] = node;
+        return depth + 1;
+    }
+
+    private static void expand(final Node node, final SimulatedGame game) {
+        final boolean mrX = game.mrXToMove();
+        final int count = game.moves();
+        final Node[] children = new Node[count];
+        for (int i = 0; i < count; i++) children[i] = new Node(game.move(i), mrX);
+        node.children = children;
+    }
+
+    /*
+        UCB1, from the side of whoever moves: MrX maximises his reward and the detectives
+        minimise it. Children that have never been tried go first
+    */
+    private static Node select(final Node node) {
+        final double log = Math.log(Math.max(1, node.visits));
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (final Node child : node.children) {
+            if (child.visits == 0) return child;
+            final double mean = child.mrXReward / child.visits;
+            final double value = (child.byMrX ? mean : 1 - mean)
+                    + EXPLORATION * Math.sqrt(log / child.visits);
+            if (value > bestValue) {
+                best = child;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    private static final class Node {
+        final int move;
+        final boolean byMrX;
+        Node[] children;
+        int visits;
+        double mrXReward;
+
+        Node(final int move, final boolean byMrX) {
+            this.move = move;
+            this.byMrX = byMrX;
+        }
+    }
+}
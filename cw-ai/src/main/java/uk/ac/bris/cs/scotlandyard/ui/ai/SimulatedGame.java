@@ -0,0 +1,342 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+    A mutable copy of a game with everything in primitive arrays, for tree search to play moves
+    on by the hundred thousand. Unlike the board, it knows where MrX is: the search plays with
+    perfect information. Player 0 is MrX and players 1 and up are the detectives, who move in a
+    fixed order each round where the model lets them move in any. Otherwise it follows the rules
+    of the model: MrX can't move onto a detective, detectives can't share a node, tickets
+    detectives use go to MrX, doubles take two rounds, detectives out of TAXI, BUS and
+    UNDERGROUND tickets sit the rest of the game out, and the game ends on a capture, when no
+    detective has a ticket left to travel with, when the last round has been played, or when
+    whoever is to move can't: MrX, or every detective still to move this round who holds a
+    ticket, which the model counts as a win for the detectives.
+
+    Moves are packed into an int: the first destination in bits 0-9, the first ticket in bits
+    10-12, the second destination in bits 13-22, the second ticket in bits 23-25 and bit 26 set
+    for a double, so nodes have to be below 1024
+*/
+final class SimulatedGame {
+    static final int NONE = 0;
+    static final int MRX_WINS = 1;
+    static final int DETECTIVES_WIN = 2;
+
+    private static final int TICKETS = Ticket.values().length;
+    private static final int DOUBLE = Ticket.DOUBLE.ordinal();
+    private static final int SECRET = Ticket.SECRET.ordinal();
+    private static final int[] REQUIRED = Arrays.stream(Transport.values())
+            .mapToInt(t -> t.requiredTicket().ordinal()).toArray();
+    private static final int NODE_BOUND = 1 << 10;
+    private static final int DOUBLE_BIT = 1 << 26;
+    // out of four, how often a detective in a playout heads straight for MrX
+    private static final int GREEDY = 3;
+    // how many times MrX in a playout draws again when his move lands next to a detective
+    private static final int REDRAWS = 2;
+
+    private final PrimitiveGraph graph;
+    private final Distances distances;
+    private final int players;
+    private final int[] locations;
+    private final int[] tickets;
+    private int roundsLeft;
+    private int turns;
+    private int mover;
+    // the detectives, as bits by player, that have yet to move this round
+    private int remaining;
+    private int winner;
+    private int[] buffer = new int[64];
+
+    private SimulatedGame(final PrimitiveGraph graph, final Distances distances, final int players) {
+        this.graph = graph;
+        this.distances = distances;
+        this.players = players;
+        this.locations = new int[players];
+        this.tickets = new int[players * TICKETS];
+    }
+
+    /*
+        The game on the board, with MrX to move from the given location
+    */
+    static SimulatedGame of(@Nonnull final Board board, final int mrXLocation) {
+        final PrimitiveGraph graph = PrimitiveGraph.of(board.getSetup());
+        if (graph.nodeBound() > NODE_BOUND)
+            throw new IllegalArgumentException("Nodes have to be below " + NODE_BOUND);
+        final Piece[] pieces = board.getPlayers().stream()
+                .sorted((a, b) -> Boolean.compare(b.isMrX(), a.isMrX())).toArray(Piece[]::new);
+        final SimulatedGame game = new SimulatedGame(graph, Distances.of(board.getSetup()), pieces.length);
+        for (int player = 0; player < pieces.length; player++) {
+            final Board.TicketBoard held = board.getPlayerTickets(pieces[player]).orElseThrow();
+            for (final Ticket ticket : Ticket.values())
+                game.tickets[player * TICKETS + ticket.ordinal()] = held.getCount(ticket);
+            game.locations[player] = player == 0 ? mrXLocation
+                    : board.getDetectiveLocation((Piece.Detective) pieces[player]).orElseThrow();
+        }
+        game.roundsLeft = board.getSetup().rounds.size() - board.getMrXTravelLog().size();
+        return game;
+    }
+
+    SimulatedGame copy() {
+        final SimulatedGame copy = new SimulatedGame(graph, distances, players);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    void copyFrom(final SimulatedGame that) {
+        System.arraycopy(that.locations, 0, locations, 0, players);
+        System.arraycopy(that.tickets, 0, tickets, 0, tickets.length);
+        roundsLeft = that.roundsLeft;
+        turns = that.turns;
+        mover = that.mover;
+        remaining = that.remaining;
+        winner = that.winner;
+    }
+
+    int winner() { return winner; }
+
+    int roundsLeft() { return roundsLeft; }
+
+    /*
+        How many times MrX has moved since the game was taken from the board, doubles counting
+        once
+    */
+    int turns() { return turns; }
+
+    boolean mrXToMove() { return mover == 0; }
+
+    /*
+        The player to move: 0 for MrX, then the detectives in the board's order
+    */
+    int mover() { return mover; }
+
+    static int single(final int destination, final Ticket ticket) {
+        return destination | ticket.ordinal() << 10;
+    }
+
+    static int doubleMove(final int destination1, final Ticket ticket1,
+                          final int destination2, final Ticket ticket2) {
+        return destination1 | ticket1.ordinal() << 10
+                | destination2 << 13 | ticket2.ordinal() << 23 | DOUBLE_BIT;
+    }
+
+    /*
+        The packed move, or -1 for a double using the same ticket twice when MrX only holds one,
+        which some models offer but none let him make
+    */
+    int encode(@Nonnull final Move move) {
+        return move.visit(new Move.FunctionalVisitor<>(
+                single -> single(single.destination, single.ticket),
+                x2 -> x2.ticket1 == x2.ticket2 && tickets[x2.ticket1.ordinal()] < 2 ? -1
+                        : doubleMove(x2.destination1, x2.ticket1, x2.destination2, x2.ticket2)));
+    }
+
+    /*
+        Writes the moves of the player to move into the buffer and returns how many there are.
+        Below the root MrX is only offered doubles, after his singles, when every single lands
+        next to a detective, which keeps the tree from drowning in them while still letting him
+        jump out of a corner
+    */
+    int moves() {
+        if (mover != 0) return detectiveMoves(mover);
+        final int singles = mrXSingles();
+        for (int i = 0; i < singles; i++) {
+            if (!nearDetective(buffer[i] & 0x3FF)) return singles;
+        }
+        return mrXDoubles(singles);
+    }
+
+    int move(final int index) { return buffer[index]; }
+
+    void play(final int move) {
+        if (mover == 0) {
+            final int ticket1 = move >>> 10 & 0x7;
+            tickets[ticket1]--;
+            roundsLeft--;
+            turns++;
+            if ((move & DOUBLE_BIT) != 0) {
+                tickets[move >>> 23 & 0x7]--;
+                tickets[DOUBLE]--;
+                roundsLeft--;
+                locations[0] = move >>> 13 & 0x3FF;
+            } else locations[0] = move & 0x3FF;
+            // detectives out of tickets never get any back, so they aren't waited for
+            for (int player = 1; player < players; player++) {
+                if (hasTravelTickets(player)) remaining |= 1 << player;
+            }
+            next();
+            return;
+        }
+        final int ticket = move >>> 10 & 0x7;
+        tickets[mover * TICKETS + ticket]--;
+        tickets[ticket]++;
+        locations[mover] = move & 0x3FF;
+        remaining &= ~(1 << mover);
+        if (locations[mover] == locations[0]) winner = DETECTIVES_WIN;
+        else next();
+    }
+
+    /*
+        Plays the game out with cheap guided moves: detectives mostly step towards MrX and MrX
+        mostly avoids stepping next to them, both by the distances detectives can travel, so
+        ferries don't count. Returns who won
+    */
+    int playout(@Nonnull final Random random) {
+        while (winner == NONE) {
+            final int count = moves();
+            int move = buffer[random.nextInt(count)];
+            if (mover == 0) {
+                for (int redraw = 0; redraw < REDRAWS && nearDetective(destination(move)); redraw++)
+                    move = buffer[random.nextInt(count)];
+            } else if (random.nextInt(4) < GREEDY) move = closest(count, random);
+            play(move);
+        }
+        return winner;
+    }
+
+    private static int destination(final int move) {
+        return (move & DOUBLE_BIT) != 0 ? move >>> 13 & 0x3FF : move & 0x3FF;
+    }
+
+    private boolean nearDetective(final int node) {
+        for (int player = 1; player < players; player++) {
+            if (distances.detectiveDistance(locations[player], node) <= 1) return true;
+        }
+        return false;
+    }
+
+    private int closest(final int count, final Random random) {
+        int best = buffer[0];
+        int bestHops = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int i = 0; i < count; i++) {
+            final int h = distances.detectiveDistance(buffer[i] & 0x3FF, locations[0]);
+            if (h < bestHops) {
+                best = buffer[i];
+                bestHops = h;
+                ties = 1;
+            } else if (h == bestHops && random.nextInt(++ties) == 0) best = buffer[i];
+        }
+        return best;
+    }
+
+    /*
+        Hands the turn to the first detective still to move who can, or to MrX once none are
+        left, deciding the game as the model does where nobody can
+    */
+    private void next() {
+        boolean travel = false;
+        for (int player = 1; player < players; player++) travel |= hasTravelTickets(player);
+        if (!travel) {
+            winner = MRX_WINS;
+            return;
+        }
+        for (int player = 1; player < players; player++) {
+            if ((remaining & 1 << player) != 0 && detectiveMoves(player) > 0) {
+                mover = player;
+                return;
+            }
+        }
+        if (remaining != 0) winner = DETECTIVES_WIN;
+        else if (roundsLeft == 0) winner = MRX_WINS;
+        else {
+            mover = 0;
+            if (mrXSingles() == 0) winner = DETECTIVES_WIN;
+        }
+    }
+
+    private boolean hasTravelTickets(final int player) {
+        final int offset = player * TICKETS;
+        for (final int ticket : REQUIRED) {
+            if (ticket != SECRET && tickets[offset + ticket] > 0) return true;
+        }
+        return false;
+    }
+
+    private boolean occupied(final int node, final int except) {
+        for (int player = 1; player < players; player++) {
+            if (player != except && locations[player] == node) return true;
+        }
+        return false;
+    }
+
+    /*
+        The tickets, as a bit mask, the player could take along the edge
+    */
+    private int usable(final int player, final int edge) {
+        final int offset = player * TICKETS;
+        final int transports = graph.transports(edge);
+        int mask = 0;
+        for (int t = 0; t < REQUIRED.length; t++) {
+            if ((transports & 1 << t) != 0 && tickets[offset + REQUIRED[t]] > 0) mask |= 1 << REQUIRED[t];
+        }
+        if (player == 0 && tickets[SECRET] > 0) mask |= 1 << SECRET;
+        else if (player != 0) mask &= ~(1 << SECRET);
+        return mask;
+    }
+
+    private int detectiveMoves(final int player) {
+        int count = 0;
+        final int source = locations[player];
+        for (int edge = graph.start(source), end = graph.end(source); edge < end; edge++) {
+            final int destination = graph.target(edge);
+            if (occupied(destination, player)) continue;
+            for (int mask = usable(player, edge); mask != 0; mask &= mask - 1)
+                count = add(count, destination | Integer.numberOfTrailingZeros(mask) << 10);
+        }
+        return count;
+    }
+
+    private int mrXSingles() {
+        int count = 0;
+        final int source = locations[0];
+        for (int edge = graph.start(source), end = graph.end(source); edge < end; edge++) {
+            final int destination = graph.target(edge);
+            if (occupied(destination, 0)) continue;
+            for (int mask = usable(0, edge); mask != 0; mask &= mask - 1)
+                count = add(count, destination | Integer.numberOfTrailingZeros(mask) << 10);
+        }
+        return count;
+    }
+
+    /*
+        Adds MrX's doubles after the first count moves in the buffer
+    */
+    private int mrXDoubles(final int count) {
+        if (tickets[DOUBLE] == 0 || roundsLeft < 2) return count;
+        int added = count;
+        final int source = locations[0];
+        for (int edge1 = graph.start(source), end1 = graph.end(source); edge1 < end1; edge1++) {
+            final int destination1 = graph.target(edge1);
+            if (occupied(destination1, 0)) continue;
+            for (int mask1 = usable(0, edge1); mask1 != 0; mask1 &= mask1 - 1) {
+                final int ticket1 = Integer.numberOfTrailingZeros(mask1);
+                tickets[ticket1]--;
+                for (int edge2 = graph.start(destination1), end2 = graph.end(destination1); edge2 < end2; edge2++) {
+                    final int destination2 = graph.target(edge2);
+                    if (occupied(destination2, 0)) continue;
+                    for (int mask2 = usable(0, edge2); mask2 != 0; mask2 &= mask2 - 1) {
+                        added = add(added, destination1 | ticket1 << 10 | destination2 << 13
+                                | Integer.numberOfTrailingZeros(mask2) << 23 | DOUBLE_BIT);
+                    }
+                }
+                tickets[ticket1]++;
+            }
+        }
+        return added;
+    }
+
+    private int add(final int count, final int move) {
+        if (count == buffer.length) buffer = Arrays.copyOf(buffer, count * 2);
+        buffer[count] = move;
+        return count + 1;
+    }
+}
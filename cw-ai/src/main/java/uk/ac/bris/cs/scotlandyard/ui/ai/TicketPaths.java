@@ -0,0 +1,199 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.MapMaker;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+    How many turns a player holding a given set of tickets needs to reach each node, which plain
+    hop distance gets wrong once someone has run out of a ticket. The search is breadth first over
+    (node, tickets left) states, one layer per turn, and a state is dropped when another state
+    already reached on the same node holds at least as many of every ticket, since it can do
+    anything the dropped one can, no later.
+
+    TAXI, BUS, UNDERGROUND and SECRET tickets count, each up to 127 of them; a SECRET takes any
+    transport, ferries included, and DOUBLE tickets are ignored. Tickets are packed one per byte,
+    so one state holding at least as many of every ticket as another is a single subtraction.
+    The turns from one source with one set of tickets are kept in a least recently used cache, so
+    asking again for the same detective, as the AIs do for every move, is a lookup. The instance
+    for a graph is kept for as long as its PrimitiveGraph, so it copies the few kilobytes of edges
+    it searches rather than holding on to the graph
+*/
+public final class TicketPaths {
+    public static final int UNREACHABLE = Short.MAX_VALUE;
+    static final int CACHE_SIZE = 1024;
+
+    private static final ConcurrentMap<PrimitiveGraph, TicketPaths> PATHS =
+            new MapMaker().weakKeys().makeMap(); // weak keys compare by identity
+    private static final Ticket[] COUNTED = {Ticket.TAXI, Ticket.BUS, Ticket.UNDERGROUND, Ticket.SECRET};
+    private static final int GUARDS = 0x80808080;
+    private static final int MAX_COUNT = 0x7F;
+    private static final int SECRET = 3;
+
+    private final int bound;
+    // the graph's edges as in PrimitiveGraph: those of node n are offsets[n] up to offsets[n + 1]
+    private final int[] offsets;
+    private final int[] targets;
+    private final byte[] transports;
+    // for each transport bit, the byte of the ticket it takes
+    private final int[] ticketOf = new int[Transport.values().length];
+    private final Map<Long, short[]> cache;
+
+    private TicketPaths(final PrimitiveGraph graph, final int cacheSize) {
+        this.bound = graph.nodeBound();
+        this.offsets = new int[bound + 1];
+        for (int node = 0; node < bound; node++) offsets[node + 1] = graph.end(node);
+        this.targets = new int[offsets[bound]];
+        this.transports = new byte[offsets[bound]];
+        for (int edge = 0; edge < targets.length; edge++) {
+            targets[edge] = graph.target(edge);
+            transports[edge] = (byte) graph.transports(edge);
+        }
+        for (final Transport t : Transport.values())
+            ticketOf[t.ordinal()] = Arrays.asList(COUNTED).indexOf(t.requiredTicket());
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, short[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public static TicketPaths of(@Nonnull final GameSetup setup) {
+        return PATHS.computeIfAbsent(PrimitiveGraph.of(setup), graph -> new TicketPaths(graph, CACHE_SIZE));
+    }
+
+    /*
+        The fewest turns from source to target with the tickets, as in Player.tickets(), or
+        UNREACHABLE if they don't get there
+    */
+    public int turns(final int source, @Nonnull final Map<Ticket, Integer> tickets, final int target) {
+        int packed = 0;
+        for (int i = 0; i < COUNTED.length; i++) packed |= pack(i, tickets.getOrDefault(COUNTED[i], 0));
+        return turns(source, packed, target);
+    }
+
+    /*
+        The fewest turns from source to target with the player's tickets on the board
+    */
+    public int turns(final int source, @Nonnull final Board.TicketBoard tickets, final int target) {
+        int packed = 0;
+        for (int i = 0; i < COUNTED.length; i++) packed |= pack(i, tickets.getCount(COUNTED[i]));
+        return turns(source, packed, target);
+    }
+
+    /*
+        As turns(source, tickets, target), with one ticket fewer, as after the player has used it
+    */
+    public int turnsAfter(final int source, @Nonnull final Board.TicketBoard tickets,
+                          @Nonnull final Ticket used, final int target) {
+        int packed = 0;
+        for (int i = 0; i < COUNTED.length; i++)
+            packed |= pack(i, tickets.getCount(COUNTED[i]) - (COUNTED[i] == used ? 1 : 0));
+        return turns(source, packed, target);
+    }
+
+    private int turns(final int source, final int tickets, final int target) {
+        if (source < 0 || source >= bound || target < 0 || target >= bound)
+            throw new IllegalArgumentException("No node " + (source < 0 || source >= bound ? source : target));
+        final Long key = (long) source << 32 | tickets & 0xFFFFFFFFL;
+        short[] turns;
+        synchronized (cache) {
+            turns = cache.get(key);
+        }
+        if (turns == null) {
+            turns = search(source, tickets);
+            synchronized (cache) {
+                cache.put(key, turns);
+            }
+        }
+        return turns[target];
+    }
+
+    private static int pack(final int index, final int count) {
+        return Math.max(0, Math.min(count, MAX_COUNT)) << (index * 8);
+    }
+
+    /*
+        Whether a holds at least as many of every ticket as b: no byte of a - b borrows
+    */
+    private static boolean dominates(final int a, final int b) {
+        return ((a | GUARDS) - b & GUARDS) == GUARDS;
+    }
+
+    private short[] search(final int source, final int tickets) {
+        final short[] turns = new short[bound];
+        Arrays.fill(turns, (short) UNREACHABLE);
+        // the tickets of the states kept on each node, none holding at least as much as another
+        final int[][] fronts = new int[bound][];
+        final int[] frontSizes = new int[bound];
+        int[] nodes = {source};
+        int[] held = {tickets};
+        int size = 1;
+        turns[source] = 0;
+        keep(fronts, frontSizes, source, tickets);
+        for (short turn = 1; size > 0; turn++) {
+            int[] nextNodes = new int[size * 4];
+            int[] nextHeld = new int[size * 4];
+            int nextSize = 0;
+            for (int s = 0; s < size; s++) {
+                final int node = nodes[s];
+                for (int edge = offsets[node], end = offsets[node + 1]; edge < end; edge++) {
+                    final int target = targets[edge];
+                    // each ticket that can take the edge, as a byte of the packed tickets
+                    int usable = (held[s] >>> (SECRET * 8) & MAX_COUNT) != 0 ? 1 << SECRET : 0;
+                    for (int t = 0; t < ticketOf.length; t++) {
+                        if ((transports[edge] & 1 << t) != 0
+                                && (held[s] >>> (ticketOf[t] * 8) & MAX_COUNT) != 0) usable |= 1 << ticketOf[t];
+                    }
+                    for (; usable != 0; usable &= usable - 1) {
+                        final int left = held[s] - (1 << Integer.numberOfTrailingZeros(usable) * 8);
+                        if (!keep(fronts, frontSizes, target, left)) continue;
+                        if (turns[target] == UNREACHABLE) turns[target] = turn;
+                        if (nextSize == nextNodes.length) {
+                            nextNodes = Arrays.copyOf(nextNodes, nextSize * 2);
+                            nextHeld = Arrays.copyOf(nextHeld, nextSize * 2);
+                        }
+                        nextNodes[nextSize] = target;
+                        nextHeld[nextSize++] = left;
+                    }
+                }
+            }
+            nodes = nextNodes;
+            held = nextHeld;
+            size = nextSize;
+        }
+        return turns;
+    }
+
+    /*
+        Adds the tickets to the node's front unless a state already there holds at least as
+        many, and drops the states they hold at least as many as. States reach the front in turn
+        order, so whatever a dropped state would have kept out, the state replacing it keeps out
+        too
+    */
+    private static boolean keep(final int[][] fronts, final int[] frontSizes, final int node, final int tickets) {
+        int[] front = fronts[node];
+        int size = frontSizes[node];
+        for (int i = 0; i < size; i++) {
+            if (dominates(front[i], tickets)) return false;
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!dominates(tickets, front[i])) front[kept++] = front[i];
+        }
+        if (front == null) fronts[node] = front = new int[4];
+        else if (kept == front.length) fronts[node] = front = Arrays.copyOf(front, kept * 2);
+        front[kept++] = tickets;
+        frontSizes[node] = kept;
+        return true;
+    }
+}
@@ -0,0 +1,104 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Checks the Node/Edge adapter over PrimitiveDijkstra against Bellman-Ford on the directed
+    edges DetectiveFindsMrX builds from the standard map, which only go from lower to higher
+    nodes
+*/
+public class DijkstraAlgorithmTest {
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<Edge> edges = new ArrayList<>();
+
+    private void buildStandardMap() throws IOException {
+        final PrimitiveGraph graph = PrimitiveGraph.of(
+                new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS));
+        for (int i = 0; i < graph.nodeBound(); i++) nodes.add(new Node(i, "Node_" + i));
+        for (int i = 1; i < graph.nodeBound(); i++) {
+            for (int edge = graph.start(i); edge < graph.end(i); edge++) {
+                if (graph.target(edge) > i)
+                    edges.add(new Edge("Edge_" + i, nodes.get(i), nodes.get(graph.target(edge)), 1));
+            }
+        }
+    }
+
+    private int[] bellmanFord(final Node source) {
+        final int[] distances = new int[nodes.size()];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        distances[source.getId()] = 0;
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (final Edge edge : edges) {
+                final int from = distances[edge.getSource().getId()];
+                if (from != Integer.MAX_VALUE && from + edge.getWeight() < distances[edge.getDestination().getId()]) {
+                    distances[edge.getDestination().getId()] = from + edge.getWeight();
+                    changed = true;
+                }
+            }
+        }
+        return distances;
+    }
+
+    private boolean hasEdge(final Node source, final Node destination) {
+        return edges.stream().anyMatch(e -> e.getSource() == source && e.getDestination() == destination);
+    }
+
+    @Test public void testPathsAreShortestChainsOfEdges() throws IOException {
+        buildStandardMap();
+        for (final int s : new int[]{1, 5, 50, 120}) {
+            final Node source = nodes.get(s);
+            final DijkstraAlgorithm dijkstra = new DijkstraAlgorithm(new Graph(edges));
+            dijkstra.execute(source);
+            final int[] expected = bellmanFord(source);
+            final boolean reaches = Arrays.stream(expected).filter(d -> d != Integer.MAX_VALUE).count() > 1;
+            for (final Node target : nodes.subList(1, nodes.size())) {
+                final LinkedList<Node> path = dijkstra.getPath(target);
+                if (!reaches) {
+                    assertThat(path).isEmpty();
+                    continue;
+                }
+                if (target == source || expected[target.getId()] == Integer.MAX_VALUE) {
+                    assertThat(path).containsExactly(target);
+                    continue;
+                }
+                assertThat(path).hasSize(expected[target.getId()] + 1);
+                assertThat(path.getFirst()).isSameAs(source);
+                assertThat(path.getLast()).isSameAs(target);
+                for (int i = 0; i + 1 < path.size(); i++)
+                    assertThat(hasEdge(path.get(i), path.get(i + 1))).isTrue();
+            }
+        }
+    }
+
+    @Test public void testWeightsAreHonoured() {
+        final Node a = new Node(0, "a");
+        final Node b = new Node(1, "b");
+        final Node c = new Node(2, "c");
+        final DijkstraAlgorithm dijkstra = new DijkstraAlgorithm(new Graph(List.of(
+                new Edge("ac", a, c, 5), new Edge("ab", a, b, 1), new Edge("bc", b, c, 1))));
+        dijkstra.execute(a);
+        assertThat(dijkstra.getPath(c)).containsExactly(a, b, c);
+    }
+
+    @Test public void testSourceThatReachesNothingGivesEmptyPaths() throws IOException {
+        buildStandardMap();
+        final DijkstraAlgorithm dijkstra = new DijkstraAlgorithm(new Graph(edges));
+        // the highest node only has edges coming in
+        dijkstra.execute(nodes.get(nodes.size() - 1));
+        assertThat(dijkstra.getPath(nodes.get(1))).isEmpty();
+        dijkstra.execute(new Node(0, "off the graph"));
+        assertThat(dijkstra.getPath(nodes.get(1))).isEmpty();
+    }
+}
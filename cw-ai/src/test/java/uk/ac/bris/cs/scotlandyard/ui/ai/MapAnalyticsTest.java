@@ -0,0 +1,136 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+    Writes the artifact to a temporary file and checks its tables against Distances and the
+    graph's edges, and that a damaged file, or one made from other graph text, is written again
+*/
+public class MapAnalyticsTest {
+
+    @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static GameSetup setup(final String graphText) {
+        return new GameSetup(ScotlandYard.readGraph(graphText), ScotlandYard.STANDARD24ROUNDS);
+    }
+
+    private static void assertMatchesDistances(final MapAnalytics analytics, final GameSetup setup) {
+        final Distances distances = Distances.of(setup);
+        final PrimitiveGraph graph = PrimitiveGraph.of(setup);
+        assertThat(analytics.nodeBound()).isEqualTo(graph.nodeBound());
+        assertThat(analytics.isFor(graph)).isTrue();
+        for (final int a : setup.graph.nodes()) {
+            for (final int b : setup.graph.nodes()) {
+                assertThat(analytics.distance(a, b)).isEqualTo(distances.distance(a, b));
+                assertThat(analytics.detectiveDistance(a, b)).isEqualTo(distances.detectiveDistance(a, b));
+                for (final Transport t : Transport.values())
+                    assertThat(analytics.distance(a, b, t)).isEqualTo(distances.distance(a, b, t));
+            }
+            for (final Ticket ticket : MapAnalytics.TICKETS) {
+                final int[] reachable = analytics.reachable(a, ticket);
+                assertThat(reachable).containsExactly(setup.graph.adjacentNodes(a).stream().sorted()
+                        .filter(b -> setup.graph.edgeValueOrDefault(a, b, null).stream()
+                                .anyMatch(t -> ticket == Ticket.SECRET || t.requiredTicket() == ticket))
+                        .mapToInt(Integer::intValue).toArray());
+                for (final int b : reachable) assertThat(analytics.isReachable(a, ticket, b)).isTrue();
+            }
+            assertThat(analytics.reachable(a, Ticket.DOUBLE)).isEmpty();
+        }
+    }
+
+    @Test public void testTablesMatchDistancesAndTheGraph() throws IOException {
+        final String text = MapAnalytics.standardGraphText();
+        final MapAnalytics analytics = MapAnalytics.open(folder.getRoot().toPath().resolve("analytics.bin"), text);
+        assertMatchesDistances(analytics, setup(text));
+        for (final int node : setup(text).graph.nodes()) {
+            assertThat(analytics.closeness(node)).isPositive();
+            assertThat(analytics.betweenness(node)).isNotNegative();
+        }
+    }
+
+    @Test public void testDamagedFileIsWrittenAgain() throws IOException {
+        final String text = MapAnalytics.standardGraphText();
+        final Path file = folder.getRoot().toPath().resolve("analytics.bin");
+        MapAnalytics.open(file, text);
+        final byte[] written = Files.readAllBytes(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            final long at = MapAnalytics.HEADER + 1000;
+            raf.seek(at);
+            raf.write(written[(int) at] ^ 0x55);
+        }
+        assertThat(Files.readAllBytes(file)).isNotEqualTo(written);
+        final MapAnalytics analytics = MapAnalytics.open(file, text);
+        assertThat(Files.readAllBytes(file)).isEqualTo(written);
+        assertMatchesDistances(analytics, setup(text));
+
+        Files.write(file, new byte[]{1, 2, 3});
+        MapAnalytics.open(file, text);
+        assertThat(Files.readAllBytes(file)).isEqualTo(written);
+    }
+
+    @Test public void testChangedGraphTextIsWrittenAgain() throws IOException {
+        final String text = MapAnalytics.standardGraphText();
+        final String changed = text.replaceFirst("(?m)^1 8 Taxi$", "1 8 Bus");
+        assertThat(changed).isNotEqualTo(text);
+        final Path file = folder.getRoot().toPath().resolve("analytics.bin");
+        MapAnalytics.open(file, text);
+        final MapAnalytics other = MapAnalytics.open(file, changed);
+        assertThat(ByteBuffer.wrap(Files.readAllBytes(file)).getLong(16)).isEqualTo(MapAnalytics.checksum(changed));
+        assertMatchesDistances(other, setup(changed));
+        assertThat(other.isFor(PrimitiveGraph.of(setup(text)))).isFalse();
+        assertThat(other.isReachable(1, Ticket.BUS, 8)).isTrue();
+        assertThat(other.isReachable(1, Ticket.TAXI, 8)).isFalse();
+        assertMatchesDistances(MapAnalytics.open(file, text), setup(text));
+    }
+
+    @Test public void testDistancesCopiedFromTheTablesMatchSearchedOnes() throws IOException {
+        final String text = MapAnalytics.standardGraphText();
+        final MapAnalytics analytics = MapAnalytics.open(folder.getRoot().toPath().resolve("analytics.bin"), text);
+        // a graph of its own, so the copy isn't already kept for it
+        final GameSetup setup = setup(text);
+        final Distances copied = Distances.of(setup, analytics);
+        final Distances searched = Distances.of(setup(text));
+        assertThat(copied).isNotSameAs(searched);
+        for (final int a : setup.graph.nodes()) {
+            for (final int b : setup.graph.nodes()) {
+                assertThat(copied.distance(a, b)).isEqualTo(searched.distance(a, b));
+                assertThat(copied.detectiveDistance(a, b)).isEqualTo(searched.detectiveDistance(a, b));
+            }
+        }
+    }
+
+    @Test public void testStandardPathIsPerUserUnlessConfigured() {
+        final String before = System.getProperty(MapAnalytics.PATH_PROPERTY);
+        try {
+            System.clearProperty(MapAnalytics.PATH_PROPERTY);
+            assertThat(MapAnalytics.standardPath().startsWith(System.getProperty("user.home"))).isTrue();
+            System.setProperty(MapAnalytics.PATH_PROPERTY, folder.getRoot().toPath().resolve("mine.bin").toString());
+            assertThat(MapAnalytics.standardPath()).isEqualTo(folder.getRoot().toPath().resolve("mine.bin"));
+        } finally {
+            if (before == null) System.clearProperty(MapAnalytics.PATH_PROPERTY);
+            else System.setProperty(MapAnalytics.PATH_PROPERTY, before);
+        }
+    }
+
+    @Test public void testBadNodesThrow() throws IOException {
+        final MapAnalytics analytics = MapAnalytics.open(folder.getRoot().toPath().resolve("analytics.bin"),
+                MapAnalytics.standardGraphText());
+        assertThatThrownBy(() -> analytics.distance(-1, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> analytics.closeness(analytics.nodeBound())).isInstanceOf(IllegalArgumentException.class);
+    }
+}
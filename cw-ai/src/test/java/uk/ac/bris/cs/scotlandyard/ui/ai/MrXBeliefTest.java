@@ -0,0 +1,104 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.LogEntry;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/*
+    Plays seeded random games on the standard map and checks after every move that the tracker
+    still has MrX's true location as possible, and that it has nothing else right after he
+    shows himself
+*/
+public class MrXBeliefTest {
+    private static final int GAMES = 60;
+    private static final int DETECTIVES = 5;
+
+    private static GameState start(final GameSetup setup, final int seed) {
+        final var locations = ScotlandYard.generateDetectiveLocations(seed, DETECTIVES);
+        final var detectives = ImmutableList.<Player>builder();
+        for (int i = 0; i < DETECTIVES; i++) {
+            detectives.add(new Player(ScotlandYard.DETECTIVES.asList().get(i),
+                    ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+        }
+        return new MyGameStateFactory().build(setup, new Player(MRX,
+                ScotlandYard.defaultMrXTickets(), ScotlandYard.generateMrXLocation(seed)), detectives.build());
+    }
+
+    private static boolean isDouble(final Move move) {
+        return move.visit(new Move.FunctionalVisitor<>(single -> false, x2 -> true));
+    }
+
+    /*
+        A random move, leaving out doubles three times in four so that games run long enough to
+        reach several reveals, and always leaving out a double using one ticket twice that MrX
+        holds only one of, which a model may offer but not make
+    */
+    private static Move pick(final GameState state, final Random random) {
+        final List<Move> moves = state.getAvailableMoves().stream()
+                .filter(move -> move.visit(new Move.FunctionalVisitor<>(single -> true,
+                        x2 -> x2.ticket1 != x2.ticket2
+                                || state.getPlayerTickets(MRX).orElseThrow().getCount(x2.ticket1) > 1)))
+                .collect(Collectors.toList());
+        final List<Move> singles = moves.stream().filter(move -> !isDouble(move)).collect(Collectors.toList());
+        final List<Move> from = singles.isEmpty() || random.nextInt(4) == 0 ? moves : singles;
+        return from.get(random.nextInt(from.size()));
+    }
+
+    @Test public void testTrueLocationIsAlwaysPossible() throws IOException {
+        final GameSetup setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+        // one tracker for every game, as an Ai kept between games would have
+        final MrXBelief belief = new MrXBelief();
+        int doubles = 0;
+        int reveals = 0;
+        for (int seed = 0; seed < GAMES; seed++) {
+            final Random random = new Random(seed);
+            GameState state = start(setup, seed);
+            int mrX = ScotlandYard.generateMrXLocation(seed);
+            while (state.getWinner().isEmpty()) {
+                final Move move = pick(state, random);
+                if (move.commencedBy().equals(MRX)) {
+                    mrX = move.visit(new Move.FunctionalVisitor<>(single -> single.destination, x2 -> x2.destination2));
+                    if (isDouble(move)) doubles++;
+                }
+                state = state.advance(move);
+                belief.update(state);
+                // once MrX is caught his location is a detective's, which the tracker leaves out
+                if (!state.getWinner().isEmpty()) break;
+                assertThat(belief.isPossible(mrX)).as("seed %d, MrX on %d, log %s", seed, mrX,
+                        state.getMrXTravelLog()).isTrue();
+                final ImmutableList<LogEntry> log = state.getMrXTravelLog();
+                if (move.commencedBy().equals(MRX) && log.get(log.size() - 1).location().isPresent()) {
+                    assertThat(belief.locations()).containsExactly(mrX);
+                    reveals++;
+                }
+            }
+        }
+        assertThat(doubles).isPositive();
+        assertThat(reveals).isPositive();
+    }
+
+    @Test public void testEveryNodeIsPossibleBeforeTheFirstMove() throws IOException {
+        final GameSetup setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+        final GameState state = start(setup, 1);
+        final MrXBelief belief = new MrXBelief();
+        belief.update(state);
+        assertThat(belief.revealed()).isFalse();
+        assertThat(belief.size()).isEqualTo(setup.graph.nodes().size() - DETECTIVES);
+        for (final int location : ScotlandYard.generateDetectiveLocations(1, DETECTIVES))
+            assertThat(belief.isPossible(location)).isFalse();
+    }
+}
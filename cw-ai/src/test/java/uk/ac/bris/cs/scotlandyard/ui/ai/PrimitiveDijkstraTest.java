@@ -0,0 +1,131 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+    Checks PrimitiveDijkstra on the standard map against Distances for unit costs and against
+    Bellman-Ford for weighted ones
+*/
+public class PrimitiveDijkstraTest {
+
+    private static GameSetup standardSetup() throws IOException {
+        return new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+    }
+
+    /*
+        Relaxes every edge until nothing changes, with each edge weighing its cheapest usable
+        transport
+    */
+    private static int[] bellmanFord(final PrimitiveGraph graph, final int[] costs, final int source) {
+        final int[] distances = new int[graph.nodeBound()];
+        Arrays.fill(distances, PrimitiveDijkstra.UNREACHABLE);
+        distances[source] = 0;
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (int node = 0; node < graph.nodeBound(); node++) {
+                if (distances[node] == PrimitiveDijkstra.UNREACHABLE) continue;
+                for (int edge = graph.start(node); edge < graph.end(node); edge++) {
+                    for (int t = 0; t < costs.length; t++) {
+                        if ((graph.transports(edge) & 1 << t) == 0 || costs[t] == PrimitiveDijkstra.UNUSABLE) continue;
+                        if (distances[node] + costs[t] < distances[graph.target(edge)]) {
+                            distances[graph.target(edge)] = distances[node] + costs[t];
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static boolean adjacent(final PrimitiveGraph graph, final int a, final int b) {
+        for (int edge = graph.start(a); edge < graph.end(a); edge++) {
+            if (graph.target(edge) == b) return true;
+        }
+        return false;
+    }
+
+    @Test public void testUnitCostsMatchDistances() throws IOException {
+        final GameSetup setup = standardSetup();
+        final PrimitiveGraph graph = PrimitiveGraph.of(setup);
+        final Distances distances = Distances.of(setup);
+        final PrimitiveDijkstra dijkstra = PrimitiveDijkstra.of(graph, new int[]{1, 1, 1, 1});
+        for (final int source : setup.graph.nodes()) {
+            dijkstra.execute(source);
+            for (final int target : setup.graph.nodes())
+                assertThat(dijkstra.distance(target)).isEqualTo(distances.distance(source, target));
+        }
+    }
+
+    @Test public void testWeightedCostsMatchBellmanFord() throws IOException {
+        final GameSetup setup = standardSetup();
+        final PrimitiveGraph graph = PrimitiveGraph.of(setup);
+        final int[][] allCosts = {{3, 2, 1, PrimitiveDijkstra.UNUSABLE}, {1, 5, 9, 2}, {0, 4, 4, 0}};
+        for (final int[] costs : allCosts) {
+            final PrimitiveDijkstra dijkstra = PrimitiveDijkstra.of(graph, costs);
+            for (final int source : setup.graph.nodes()) {
+                dijkstra.execute(source);
+                final int[] expected = bellmanFord(graph, costs, source);
+                for (final int target : setup.graph.nodes())
+                    assertThat(dijkstra.distance(target)).isEqualTo(expected[target]);
+            }
+        }
+    }
+
+    @Test public void testPathsAreShortestChainsOfEdges() throws IOException {
+        final GameSetup setup = standardSetup();
+        final PrimitiveGraph graph = PrimitiveGraph.of(setup);
+        final Distances distances = Distances.of(setup);
+        final PrimitiveDijkstra dijkstra = PrimitiveDijkstra.of(graph, new int[]{1, 1, 1, 1});
+        for (final int source : new int[]{1, 46, 108, 199}) {
+            dijkstra.execute(source);
+            for (final int target : setup.graph.nodes()) {
+                final int[] path = dijkstra.path(target);
+                assertThat(path).hasSize(distances.distance(source, target) + 1);
+                assertThat(path[0]).isEqualTo(source);
+                assertThat(path[path.length - 1]).isEqualTo(target);
+                for (int i = 0; i + 1 < path.length; i++)
+                    assertThat(adjacent(graph, path[i], path[i + 1])).isTrue();
+            }
+        }
+    }
+
+    @Test public void testUnusableTransportsAreLeftOut() throws IOException {
+        final GameSetup setup = standardSetup();
+        final PrimitiveGraph graph = PrimitiveGraph.of(setup);
+        final Distances distances = Distances.of(setup);
+        final int[] undergroundOnly = new int[Transport.values().length];
+        Arrays.fill(undergroundOnly, PrimitiveDijkstra.UNUSABLE);
+        undergroundOnly[Transport.UNDERGROUND.ordinal()] = 1;
+        final PrimitiveDijkstra dijkstra = PrimitiveDijkstra.of(graph, undergroundOnly);
+        dijkstra.execute(1);
+        for (final int target : setup.graph.nodes())
+            assertThat(dijkstra.distance(target))
+                    .isEqualTo(distances.distance(1, target, Transport.UNDERGROUND) == Distances.UNREACHABLE
+                            ? PrimitiveDijkstra.UNREACHABLE : distances.distance(1, target, Transport.UNDERGROUND));
+        dijkstra.execute(2);
+        assertThat(dijkstra.distance(1)).isEqualTo(PrimitiveDijkstra.UNREACHABLE);
+        assertThat(dijkstra.path(1)).isEmpty();
+    }
+
+    @Test public void testBadInputsThrow() throws IOException {
+        final PrimitiveGraph graph = PrimitiveGraph.of(standardSetup());
+        assertThatThrownBy(() -> PrimitiveDijkstra.of(graph, new int[]{1, 1}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PrimitiveDijkstra.of(graph, new int[]{1, -2, 1, 1}))
+                .isInstanceOf(IllegalArgumentException.class);
+        final PrimitiveDijkstra dijkstra = PrimitiveDijkstra.of(graph, new int[]{1, 1, 1, 1});
+        assertThatThrownBy(() -> dijkstra.distance(1)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> dijkstra.execute(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> dijkstra.execute(dijkstra.nodeCount())).isInstanceOf(IllegalArgumentException.class);
+    }
+}
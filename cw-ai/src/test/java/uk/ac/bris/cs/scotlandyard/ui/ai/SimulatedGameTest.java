@@ -0,0 +1,134 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/*
+    Plays seeded random games on MyGameStateFactory and SimulatedGame side by side, and checks
+    after every move that both offer the same moves and agree on the winner. The model offers
+    every detective still to move at once where SimulatedGame takes them in order, so only the
+    model's moves for the detective SimulatedGame has to move are compared. MrX's doubles are
+    only expected when every single lands next to a detective, as SimulatedGame offers them, and
+    doubles using one ticket twice that MrX holds only one of are left out
+*/
+public class SimulatedGameTest {
+    private static final int GAMES = 100;
+
+    private static GameState start(final GameSetup setup, final int seed, final int detectives) {
+        final var locations = ScotlandYard.generateDetectiveLocations(seed, detectives);
+        final var players = ImmutableList.<Player>builder();
+        for (int i = 0; i < detectives; i++) {
+            players.add(new Player(ScotlandYard.DETECTIVES.asList().get(i),
+                    ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+        }
+        return new MyGameStateFactory().build(setup, new Player(MRX,
+                ScotlandYard.defaultMrXTickets(), ScotlandYard.generateMrXLocation(seed)), players.build());
+    }
+
+    private static boolean isDouble(final Move move) {
+        return move.visit(new Move.FunctionalVisitor<>(single -> false, x2 -> true));
+    }
+
+    private static int destination(final Move move) {
+        return move.visit(new Move.FunctionalVisitor<>(single -> single.destination, x2 -> x2.destination2));
+    }
+
+    /*
+        MrX's single moves all land next to a detective, by the edges detectives can take
+    */
+    private static boolean cornered(final GameState state, final Distances distances, final List<Move> singles) {
+        for (final Move move : singles) {
+            boolean near = false;
+            for (final Piece piece : state.getPlayers()) {
+                if (piece.isDetective() && distances.detectiveDistance(
+                        state.getDetectiveLocation((Piece.Detective) piece).orElseThrow(), destination(move)) <= 1)
+                    near = true;
+            }
+            if (!near) return false;
+        }
+        return true;
+    }
+
+    /*
+        The model hands MrX the turn while a detective out of tickets is still to move, but then
+        leaves the game as it is whatever he plays, so it can't be followed any further
+    */
+    private static boolean frozen(final GameState state) {
+        final ImmutableSet<Move> moves = state.getAvailableMoves();
+        if (moves.isEmpty() || !moves.iterator().next().commencedBy().isMrX()) return false;
+        return state.advance(moves.iterator().next()) == state;
+    }
+
+    private static int winner(final GameState state) {
+        final ImmutableSet<Piece> winner = state.getWinner();
+        if (winner.isEmpty()) return SimulatedGame.NONE;
+        return winner.contains(MRX) ? SimulatedGame.MRX_WINS : SimulatedGame.DETECTIVES_WIN;
+    }
+
+    @Test public void testMovesAndWinnersMatchTheModel() throws IOException {
+        final GameSetup setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+        final Distances distances = Distances.of(setup);
+        final int[] wins = new int[3];
+        int doubles = 0;
+        for (int seed = 0; seed < GAMES; seed++) {
+            final Random random = new Random(seed);
+            // fewer detectives in some games, so MrX lasts to the end of the rounds now and then
+            GameState state = start(setup, seed, 2 + seed % 4);
+            final Piece[] pieces = state.getPlayers().stream()
+                    .sorted((a, b) -> Boolean.compare(b.isMrX(), a.isMrX())).toArray(Piece[]::new);
+            final SimulatedGame game = SimulatedGame.of(state, ScotlandYard.generateMrXLocation(seed));
+            while (true) {
+                if (frozen(state)) break;
+                assertThat(game.winner()).as("seed %d", seed).isEqualTo(winner(state));
+                if (game.winner() != SimulatedGame.NONE) break;
+                assertThat(game.roundsLeft())
+                        .isEqualTo(setup.rounds.size() - state.getMrXTravelLog().size());
+
+                final Piece mover = pieces[game.mover()];
+                final List<Move> moves = new ArrayList<>();
+                final List<Move> singles = new ArrayList<>();
+                for (final Move move : state.getAvailableMoves()) {
+                    if (move.commencedBy() != mover || game.encode(move) < 0) continue;
+                    moves.add(move);
+                    if (!isDouble(move)) singles.add(move);
+                }
+                final Set<Integer> expected = new HashSet<>();
+                for (final Move move : mover.isMrX() && !cornered(state, distances, singles) ? singles : moves)
+                    expected.add(game.encode(move));
+                final Set<Integer> actual = new HashSet<>();
+                final int count = game.moves();
+                for (int i = 0; i < count; i++) actual.add(game.move(i));
+                assertThat(actual).as("seed %d, %s to move", seed, mover).isEqualTo(expected);
+                assertThat(count).isEqualTo(actual.size());
+
+                final List<Move> from = singles.isEmpty() || random.nextInt(4) == 0 ? moves : singles;
+                final Move move = from.get(random.nextInt(from.size()));
+                if (isDouble(move)) doubles++;
+                game.play(game.encode(move));
+                state = state.advance(move);
+            }
+            if (game.winner() != SimulatedGame.NONE) wins[game.winner()]++;
+        }
+        assertThat(wins[SimulatedGame.MRX_WINS]).isPositive();
+        assertThat(wins[SimulatedGame.DETECTIVES_WIN]).isPositive();
+        assertThat(doubles).isPositive();
+    }
+}
@@ -0,0 +1,138 @@
+package uk.ac.bris.cs.scotlandyard.ui.ai;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import uk.ac.bris.cs.scotlandyard.model.Board;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+    Checks TicketPaths on the standard map against a breadth first search over every
+    (node, tickets left) state, which keeps each state it hasn't seen before and so prunes
+    nothing, and against Distances when tickets never run out
+*/
+public class TicketPathsTest {
+
+    private static GameSetup standardSetup() throws IOException {
+        return new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+    }
+
+    /*
+        Tickets are TAXI, BUS, UNDERGROUND and SECRET, in that order; a SECRET takes any edge
+    */
+    private static int[] bruteForce(final PrimitiveGraph graph, final int source, final int[] tickets) {
+        final int[] turns = new int[graph.nodeBound()];
+        Arrays.fill(turns, TicketPaths.UNREACHABLE);
+        turns[source] = 0;
+        final Set<List<Integer>> seen = new HashSet<>();
+        final ArrayDeque<int[]> queue = new ArrayDeque<>();
+        // node, the four ticket counts and the turns taken
+        queue.add(new int[]{source, tickets[0], tickets[1], tickets[2], tickets[3], 0});
+        while (!queue.isEmpty()) {
+            final int[] state = queue.poll();
+            for (int edge = graph.start(state[0]); edge < graph.end(state[0]); edge++) {
+                for (int ticket = 0; ticket < 4; ticket++) {
+                    if (state[1 + ticket] == 0) continue;
+                    if (ticket != 3 && (graph.transports(edge) & 1 << ticket) == 0) continue;
+                    final int[] next = state.clone();
+                    next[0] = graph.target(edge);
+                    next[1 + ticket]--;
+                    next[5]++;
+                    if (!seen.add(List.of(next[0], next[1], next[2], next[3], next[4]))) continue;
+                    turns[next[0]] = Math.min(turns[next[0]], next[5]);
+                    queue.add(next);
+                }
+            }
+        }
+        return turns;
+    }
+
+    private static Map<Ticket, Integer> tickets(final int taxi, final int bus, final int underground, final int secret) {
+        return ImmutableMap.of(Ticket.TAXI, taxi, Ticket.BUS, bus, Ticket.UNDERGROUND, underground, Ticket.SECRET, secret);
+    }
+
+    @Test public void testScarceTicketsMatchBruteForce() throws IOException {
+        final GameSetup setup = standardSetup();
+        final PrimitiveGraph graph = PrimitiveGraph.of(setup);
+        final TicketPaths paths = TicketPaths.of(setup);
+        final Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            final int source = 1 + random.nextInt(199);
+            final int[] held = {random.nextInt(6), random.nextInt(4), random.nextInt(3), random.nextInt(2)};
+            final int[] expected = bruteForce(graph, source, held);
+            final Map<Ticket, Integer> tickets = tickets(held[0], held[1], held[2], held[3]);
+            for (final int target : setup.graph.nodes())
+                assertThat(paths.turns(source, tickets, target))
+                        .as("%d to %d with %s", source, target, tickets).isEqualTo(expected[target]);
+        }
+    }
+
+    /*
+        With a few of each ticket, states on one node often hold more of one ticket and fewer
+        of another, so neither may be dropped, while a state reached later with no more of
+        anything must be
+    */
+    @Test public void testStatesHoldingDifferentTicketsAreBothKept() throws IOException {
+        final GameSetup setup = standardSetup();
+        final PrimitiveGraph graph = PrimitiveGraph.of(setup);
+        final TicketPaths paths = TicketPaths.of(setup);
+        for (final int[] held : new int[][]{{3, 1, 0, 0}, {1, 3, 0, 0}, {2, 2, 1, 0}, {2, 0, 1, 1}, {0, 2, 2, 1}}) {
+            for (final int source : new int[]{1, 13, 46, 89, 140, 199}) {
+                final int[] expected = bruteForce(graph, source, held);
+                final Map<Ticket, Integer> tickets = tickets(held[0], held[1], held[2], held[3]);
+                for (final int target : setup.graph.nodes())
+                    assertThat(paths.turns(source, tickets, target))
+                            .as("%d to %d with %s", source, target, tickets).isEqualTo(expected[target]);
+            }
+        }
+    }
+
+    @Test public void testPlentyOfTicketsMatchesDistances() throws IOException {
+        final GameSetup setup = standardSetup();
+        final TicketPaths paths = TicketPaths.of(setup);
+        final Distances distances = Distances.of(setup);
+        final Map<Ticket, Integer> plenty = tickets(60, 60, 60, 60);
+        for (final int source : setup.graph.nodes()) {
+            for (final int target : setup.graph.nodes())
+                assertThat(paths.turns(source, plenty, target)).isEqualTo(distances.distance(source, target));
+        }
+    }
+
+    @Test public void testNoTicketsReachOnlyTheSource() throws IOException {
+        final GameSetup setup = standardSetup();
+        final TicketPaths paths = TicketPaths.of(setup);
+        for (final int target : setup.graph.nodes())
+            assertThat(paths.turns(1, Map.of(), target)).isEqualTo(target == 1 ? 0 : TicketPaths.UNREACHABLE);
+    }
+
+    @Test public void testTurnsAfterUsesOneTicketFewer() throws IOException {
+        final GameSetup setup = standardSetup();
+        final TicketPaths paths = TicketPaths.of(setup);
+        final Map<Ticket, Integer> held = tickets(2, 1, 1, 0);
+        final Board.TicketBoard board = ticket -> held.getOrDefault(ticket, 0);
+        for (final int target : setup.graph.nodes()) {
+            assertThat(paths.turns(1, board, target)).isEqualTo(paths.turns(1, held, target));
+            assertThat(paths.turnsAfter(1, board, Ticket.BUS, target))
+                    .isEqualTo(paths.turns(1, tickets(2, 0, 1, 0), target));
+        }
+    }
+
+    @Test public void testBadNodesThrow() throws IOException {
+        final TicketPaths paths = TicketPaths.of(standardSetup());
+        assertThatThrownBy(() -> paths.turns(-1, Map.of(), 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> paths.turns(1, Map.of(), 1000)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,78 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import uk.ac.bris.cs.scotlandyard.AiScanner;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+/**
+ * Plays games between two {@link Ai}s found on the classpath and reports how fast they went and
+ * who won, without JavaFX on the classpath. With the model installed, run from cw-headless with,
+ * for example:
+ * <pre>
+ * mvn -f ../cw-model/pom.xml install -DskipTests
+ * mvn compile exec:java -Dexec.args="--mrx Mcts --detectives Rick --games 100"
+ * </pre>
+ * Options:
+ * <pre>
+ * --mrx NAME          Ai playing MrX, by {@link Ai#name()} or simple class name
+ * --detectives NAME   Ai playing the detectives
+ * --games N           number of games, 100 by default
+ * --seed S            seed of the first game; game i uses S + i. 0 by default
+ * --count N           number of detectives, 5 by default
+ * --timeout SECONDS   time an Ai gets for each move, 30 by default as in the UI
+ * --list              list the Ais found and exit
+ * </pre>
+ */
+public final class HeadlessRunner {
+
+	private HeadlessRunner() {}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		final Map<String, String> options = Options.parse(args);
+		final ImmutableList<Ai> ais = AiScanner.scan();
+		if (options.containsKey("list")) {
+			ais.forEach(ai -> System.out.println(ai.name() + " (" + ai.getClass().getName() + ")"));
+			return;
+		}
+		final Ai mrX = AiScanner.find(ais, Options.require(options, "mrx"));
+		final Ai detectives = AiScanner.find(ais, Options.require(options, "detectives"));
+		final int games = Integer.parseInt(options.getOrDefault("games", "100"));
+		final int seed = Integer.parseInt(options.getOrDefault("seed", "0"));
+		final int count = Integer.parseInt(options.getOrDefault("count", "5"));
+		final Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "30")));
+
+		final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+				.setNameFormat("ai-thread-%d").setDaemon(true).build());
+		final var game = new HeadlessGame(new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS),
+				new MyGameStateFactory(), count, timeout, executor);
+		final Summary summary = new Summary();
+		System.out.println("MrX: " + mrX.name() + ", detectives: " + detectives.name());
+		mrX.onStart();
+		detectives.onStart();
+		final long start = System.nanoTime();
+		try {
+			for (int i = 0; i < games; i++) {
+				final GameRecord record = game.play(mrX, detectives, seed + i);
+				record.abandoned().ifPresent(reason -> System.out.println("game " + record.seed() + ": " + reason));
+				summary.add(record);
+			}
+		} finally {
+			final long elapsed = System.nanoTime() - start;
+			mrX.onTerminate();
+			detectives.onTerminate();
+			executor.shutdownNow();
+			summary.print(System.out, elapsed);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+import uk.ac.bris.cs.scotlandyard.AiScanner;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+
+/**
+ * Runs a {@link Tournament} between Ais found on the classpath and prints MrX's win rate for
+ * each matchup with a 95% confidence interval. With the model installed, run from cw-headless
+ * with, for example:
+ * <pre>
+ * mvn -f ../cw-model/pom.xml install -DskipTests
+ * mvn compile exec:java -Dexec.mainClass=uk.ac.bris.cs.scotlandyard.headless.TournamentRunner \
+ *     -Dexec.args="--ais Rick,Mcts --games 1000 --seed 42"
+ * </pre>
+ * Options:
+ * <pre>
+ * --ais A,B,...       Ais taking part, by {@link Ai#name()} or simple class name; all found by default
+ * --games N           games per matchup, 100 by default
+ * --seed S            tournament seed, 0 by default
+ * --threads N         games played at once, one per core by default
+ * --ai-threads N      threads each Ai may search on, as the ai.threads system property; the
+ *                     property if it is set, otherwise the cores shared between the games
+ * --count N           number of detectives, 5 by default
+ * --timeout SECONDS   time an Ai gets for each move, 30 by default
+ * --lifecycle         call onStart and onTerminate around every game
+ * </pre>
+ */
+public final class TournamentRunner {
+
+	private static final String AI_THREADS = "ai.threads";
+
+	private TournamentRunner() {}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		final Map<String, String> options = Options.parse(args);
+		final ImmutableList<Ai> found = AiScanner.scan();
+		final var ais = ImmutableList.<Class<? extends Ai>>builder();
+		if (options.containsKey("ais")) {
+			for (String name : Options.require(options, "ais").split(","))
+				ais.add(AiScanner.find(found, name.trim()).getClass());
+		} else found.forEach(ai -> ais.add(ai.getClass()));
+		final int games = Integer.parseInt(options.getOrDefault("games", "100"));
+		final int seed = Integer.parseInt(options.getOrDefault("seed", "0"));
+		final int threads = Integer.parseInt(options.getOrDefault("threads",
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+		// read by Ais as they are created, so set before any game starts
+		final String aiThreads = options.getOrDefault("ai-threads", System.getProperty(AI_THREADS,
+				String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / threads))));
+		System.setProperty(AI_THREADS, aiThreads);
+		final int count = Integer.parseInt(options.getOrDefault("count", "5"));
+		final Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "30")));
+
+		final var tournament = new Tournament(new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS),
+				new MyGameStateFactory(), count, timeout, options.containsKey("lifecycle"));
+		final long start = System.nanoTime();
+		final ImmutableList<Tournament.Matchup> matchups = tournament.play(ais.build(), games, seed, threads);
+		final long elapsed = System.nanoTime() - start;
+
+		System.out.printf("%d matchups x %d games, seed %d, %d threads, %s per Ai: %.2fs (%.2f games/s)%n",
+				matchups.size(), games, seed, threads, aiThreads, elapsed / 1e9,
+				matchups.size() * games / (elapsed / 1e9));
+		System.out.printf("%-24s %-24s %8s %22s %9s%n", "MrX", "Detectives", "games", "MrX wins (95% CI)", "abandoned");
+		for (Tournament.Matchup matchup : matchups) {
+			final double[] rate = matchup.mrXWinRate();
+			System.out.printf("%-24s %-24s %8d %7.1f%% [%5.1f, %5.1f] %9d%n",
+					matchup.mrX().getSimpleName(), matchup.detectives().getSimpleName(), matchup.records().size(),
+					100 * rate[0], 100 * rate[1], 100 * rate[2], matchup.abandoned());
+		}
+		for (Tournament.Matchup matchup : matchups) {
+			System.out.println();
+			System.out.println(matchup.mrX().getSimpleName() + " (MrX) vs " + matchup.detectives().getSimpleName());
+			final Summary summary = new Summary();
+			matchup.records().forEach(summary::add);
+			summary.printResults(System.out);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the model benchmarks with JMH's allocation profiler on. Takes the usual JMH options, so
+ * e.g. {@code java -jar target/benchmarks.jar GameState} only runs {@link GameStateBenchmark}.
+ */
+public final class Benchmarks {
+
+	private Benchmarks() {}
+
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
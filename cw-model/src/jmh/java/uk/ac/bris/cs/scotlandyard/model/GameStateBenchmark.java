@@ -0,0 +1,92 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Positions.Position;
+
+/**
+ * Building and advancing {@link MyGameStateFactory} states. Each call takes the next position of
+ * the corpus in turn. The positions' moves are worked out during setup, as they would be once an
+ * Ai has looked at the board, so advancing measures checking the move and making the next state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class GameStateBenchmark {
+
+	private final MyGameStateFactory factory = new MyGameStateFactory();
+	private Position[] positions;
+	private GameState[] singleStates;
+	private Move[] singles;
+	private GameState[] doubleStates;
+	private Move[] doubles;
+	private int next;
+
+	@Setup public void setup() throws IOException {
+		final ImmutableList<Position> corpus = Positions.corpus(factory);
+		positions = corpus.toArray(new Position[0]);
+		final Random random = new Random(42);
+		final List<GameState> singleStates = new ArrayList<>();
+		final List<Move> singles = new ArrayList<>();
+		final List<GameState> doubleStates = new ArrayList<>();
+		final List<Move> doubles = new ArrayList<>();
+		for (Position position : corpus) {
+			final List<Move> single = new ArrayList<>();
+			final List<Move> x2 = new ArrayList<>();
+			for (Move move : position.state.getAvailableMoves()) {
+				if (Positions.affordable(position.state, move)) (Moves.isDoubleMove(move) ? x2 : single).add(move);
+			}
+			singleStates.add(position.state);
+			singles.add(single.get(random.nextInt(single.size())));
+			if (!x2.isEmpty()) {
+				doubleStates.add(position.state);
+				doubles.add(x2.get(random.nextInt(x2.size())));
+			}
+		}
+		this.singleStates = singleStates.toArray(new GameState[0]);
+		this.singles = singles.toArray(new Move[0]);
+		this.doubleStates = doubleStates.toArray(new GameState[0]);
+		this.doubles = doubles.toArray(new Move[0]);
+	}
+
+	private int next(int bound) {
+		if (++next >= bound) next = 0;
+		return next;
+	}
+
+	@Benchmark public GameState build() {
+		final Position position = positions[next(positions.length)];
+		return factory.build(position.setup, position.mrX, position.detectives);
+	}
+
+	@Benchmark public GameState advanceSingle() {
+		final int i = next(singles.length);
+		return singleStates[i].advance(singles[i]);
+	}
+
+	@Benchmark public GameState advanceDouble() {
+		final int i = next(doubles.length);
+		return doubleStates[i].advance(doubles[i]);
+	}
+}
@@ -0,0 +1,48 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.bris.cs.scotlandyard.model.Positions.Position;
+
+/**
+ * Generating MrX's moves, doubles included, for each position of the corpus in turn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MovesBenchmark {
+
+	private Position[] positions;
+	private Occupancy[] occupied;
+	private int next;
+
+	@Setup public void setup() throws IOException {
+		positions = Positions.corpus(new MyGameStateFactory()).toArray(new Position[0]);
+		occupied = new Occupancy[positions.length];
+		for (int i = 0; i < positions.length; i++)
+			occupied[i] = Occupancy.of(CompactGraph.of(positions[i].setup), positions[i].detectives);
+	}
+
+	@Benchmark public ImmutableSet<Move> getMrXMoves() {
+		if (++next >= positions.length) next = 0;
+		final Position position = positions[next];
+		return Moves.getMrXMoves(position.setup, occupied[next], position.mrX, position.log);
+	}
+}
@@ -0,0 +1,59 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.bris.cs.scotlandyard.model.Positions.Position;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Using one ticket, for every player of the corpus and every ticket they hold in turn.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PlayerBenchmark {
+
+	private Player[] players;
+	private Ticket[] tickets;
+	private int next;
+
+	@Setup public void setup() throws IOException {
+		final List<Player> players = new ArrayList<>();
+		final List<Ticket> tickets = new ArrayList<>();
+		for (Position position : Positions.corpus(new MyGameStateFactory())) {
+			final List<Player> all = new ArrayList<>(position.detectives);
+			all.add(position.mrX);
+			for (Player player : all) {
+				for (Ticket ticket : Ticket.values()) {
+					if (!player.has(ticket)) continue;
+					players.add(player);
+					tickets.add(ticket);
+				}
+			}
+		}
+		this.players = players.toArray(new Player[0]);
+		this.tickets = tickets.toArray(new Ticket[0]);
+	}
+
+	@Benchmark public Player use() {
+		if (++next >= players.length) next = 0;
+		return players[next].use(tickets[next]);
+	}
+}
@@ -0,0 +1,130 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.io.IOException;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/**
+ * The fixed corpus of mid-game positions the benchmarks run on. Positions come from random
+ * playouts with five detectives on the standard map; the playouts are seeded, so every run
+ * measures exactly the same positions. Each one is taken with MrX to move, once
+ * {@link #ROUNDS} rounds have been played.
+ */
+final class Positions {
+
+	static final ImmutableSet<Integer> ROUNDS = ImmutableSet.of(3, 6, 9, 12, 15);
+	static final int GAMES = 32;
+	static final int DETECTIVES = 5;
+
+	/**
+	 * A position, along with the players and log behind it
+	 */
+	static final class Position {
+		final GameSetup setup;
+		final GameState state;
+		final Player mrX;
+		final ImmutableList<Player> detectives;
+		final TravelLog log;
+
+		private Position(GameSetup setup, GameState state, Player mrX,
+		                 ImmutableList<Player> detectives, TravelLog log) {
+			this.setup = setup;
+			this.state = state;
+			this.mrX = mrX;
+			this.detectives = detectives;
+			this.log = log;
+		}
+	}
+
+	private Positions() {}
+
+	/**
+	 * @param factory the factory to play the games with
+	 * @return the positions, in the same order on every call
+	 * @throws IOException if the standard graph can't be read
+	 */
+	@Nonnull static ImmutableList<Position> corpus(@Nonnull ScotlandYard.Factory<GameState> factory)
+			throws IOException {
+		final GameSetup setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		final var corpus = ImmutableList.<Position>builder();
+		for (int seed = 0; seed < GAMES; seed++) {
+			final Random random = new Random(seed);
+			final var locations = ScotlandYard.generateDetectiveLocations(seed, DETECTIVES);
+			final var detectives = ImmutableList.<Player>builder();
+			for (int i = 0; i < DETECTIVES; i++)
+				detectives.add(new Player(ScotlandYard.DETECTIVES.asList().get(i),
+						ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+			int mrXLocation = ScotlandYard.generateMrXLocation(seed);
+			GameState state = factory.build(setup,
+					new Player(MRX, ScotlandYard.defaultMrXTickets(), mrXLocation), detectives.build());
+			while (state.getWinner().isEmpty()) {
+				final ImmutableList<Move> moves = moves(state, random);
+				final Move move = moves.get(random.nextInt(moves.size()));
+				if (move.commencedBy().isMrX()) {
+					if (ROUNDS.contains(state.getMrXTravelLog().size()))
+						corpus.add(position(setup, state, mrXLocation));
+					mrXLocation = Moves.getDestination(move);
+				}
+				final GameState next = state.advance(move);
+				if (next == state) break; // MrX moved while only ticketless detectives were left
+				state = next;
+			}
+		}
+		return corpus.build();
+	}
+
+	/**
+	 * Doubles using the same ticket twice are offered even when MrX only holds one of it, and
+	 * can't then be made.
+	 *
+	 * @param board the board
+	 * @param move one of the board's available moves
+	 * @return whether the mover holds the tickets the move needs
+	 */
+	static boolean affordable(@Nonnull Board board, @Nonnull Move move) {
+		return move.visit(new Move.FunctionalVisitor<>(single -> true, x2 -> x2.ticket1 != x2.ticket2
+				|| board.getPlayerTickets(MRX).orElseThrow().getCount(x2.ticket1) >= 2));
+	}
+
+	/*
+		Doubles far outnumber single moves, so picking from every move would spend MrX's doubles
+		in the first rounds; he only gets to pick from them one time in four
+	*/
+	private static ImmutableList<Move> moves(GameState state, Random random) {
+		final boolean doubles = random.nextInt(4) == 0;
+		return state.getAvailableMoves().stream()
+				.filter(move -> affordable(state, move) && (doubles || !Moves.isDoubleMove(move)))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/*
+		The board doesn't say where MrX is, so the playout keeps track of it
+	*/
+	private static Position position(GameSetup setup, GameState state, int mrXLocation) {
+		final var detectives = ImmutableList.<Player>builder();
+		for (Piece piece : ScotlandYard.DETECTIVES) {
+			state.getDetectiveLocation((Detective) piece).ifPresent(location ->
+					detectives.add(new Player(piece, tickets(state, piece), location)));
+		}
+		return new Position(setup, state, new Player(MRX, tickets(state, MRX), mrXLocation),
+				detectives.build(), TravelLog.of(state.getMrXTravelLog()));
+	}
+
+	private static ImmutableMap<Ticket, Integer> tickets(Board board, Piece piece) {
+		final Board.TicketBoard tickets = board.getPlayerTickets(piece).orElseThrow();
+		final var builder = ImmutableMap.<Ticket, Integer>builder();
+		for (Ticket ticket : Ticket.values()) builder.put(ticket, tickets.getCount(ticket));
+		return builder.build();
+	}
+}
@@ -0,0 +1,87 @@
+package uk.ac.bris.cs.scotlandyard;
+
+import com.google.common.collect.ImmutableList;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+import io.github.lukehutch.fastclasspathscanner.FastClasspathScanner;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+
+/**
+ * Finds and creates the {@link Ai}s on the classpath. Unlike {@link ResourceManager}, which
+ * delegates here, this class doesn't touch JavaFX, so it can be used without a display.
+ */
+public final class AiScanner {
+
+	private AiScanner() {}
+
+	/**
+	 * @param cls the Ai class, which must have a public no-argument constructor
+	 * @return a new instance of the class
+	 */
+	public static Ai instantiate(Class<? extends Ai> cls) {
+		try {
+			return cls.getConstructor().newInstance();
+		} catch (InstantiationException
+				| IllegalAccessException
+				| InvocationTargetException
+				| NoSuchMethodException e) {
+			throw new RuntimeException("Unable to create Ai instance of class " + cls, e);
+		}
+	}
+
+	/**
+	 * Creates an Ai for a reproducible game: if the class has a public constructor taking a
+	 * {@code long}, it is given the seed to draw its random choices from; otherwise the
+	 * no-argument constructor is used.
+	 *
+	 * @param cls the Ai class
+	 * @param seed the seed
+	 * @return a new instance of the class
+	 */
+	public static Ai instantiate(Class<? extends Ai> cls, long seed) {
+		final Constructor<? extends Ai> seeded;
+		try {
+			seeded = cls.getConstructor(long.class);
+		} catch (NoSuchMethodException e) {
+			return instantiate(cls);
+		}
+		try {
+			return seeded.newInstance(seed);
+		} catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+			throw new RuntimeException("Unable to create Ai instance of class " + cls, e);
+		}
+	}
+
+	/**
+	 * @param ais the Ais to look in, as from {@link #scan()}
+	 * @param name the {@link Ai#name()} or simple class name of the Ai, ignoring case
+	 * @return a new instance of the Ai, so each caller gets one of its own
+	 * @throws IllegalArgumentException if no Ai has the name
+	 */
+	public static Ai find(ImmutableList<Ai> ais, String name) {
+		for (final Ai ai : ais) {
+			if (ai.name().equalsIgnoreCase(name) || ai.getClass().getSimpleName().equalsIgnoreCase(name))
+				return instantiate(ai.getClass());
+		}
+		throw new IllegalArgumentException("No Ai called " + name + " on the classpath, found "
+				+ ais.stream().map(Ai::name).collect(ImmutableList.toImmutableList()));
+	}
+
+	/**
+	 * @return one new instance of every Ai class on the classpath
+	 */
+	@SuppressWarnings("unchecked") public static ImmutableList<Ai> scan() {
+		var found = new FastClasspathScanner().scan().getNamesOfClassesImplementing(Ai.class);
+		return found.stream().map(c -> {
+			try {
+				Class<Ai> clazz = (Class<Ai>) Class.forName(c);
+				if (!Ai.class.isAssignableFrom(clazz))
+					throw new IllegalArgumentException(c + " does not implement " + Ai.class);
+				return instantiate(clazz);
+			} catch (Exception e) { throw new RuntimeException(e); }
+		}).collect(ImmutableList.toImmutableList());
+	}
+
+}
@@ -0,0 +1,71 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.CompactGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Differential;
+import uk.ac.bris.cs.scotlandyard.model.Differential.DivergenceException;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Runs a {@link Differential} check of a game state factory against {@link MyGameStateFactory}
+ * and exits with status 1 if they diverge. Run with, for example:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=uk.ac.bris.cs.scotlandyard.headless.DifferentialRunner \
+ *     -Dexec.args="--candidate compact --games 100000"
+ * </pre>
+ * Options:
+ * <pre>
+ * --candidate NAME    factory to check: my, compact or a class name; compact by default
+ * --reference NAME    factory taken to be right, my by default
+ * --games N           number of games, 10000 by default
+ * --seed S            seed of the first game; game i uses S + i. 0 by default
+ * --plies N           most plies to play in a game, 500 by default
+ * --threads N         games played at once, one per core by default
+ * </pre>
+ */
+public final class DifferentialRunner {
+
+	private DifferentialRunner() {}
+
+	public static void main(String[] args) throws InterruptedException {
+		final Map<String, String> options = Options.parse(args);
+		final Factory<GameState> reference = factory(options.getOrDefault("reference", "my"));
+		final Factory<GameState> candidate = factory(options.getOrDefault("candidate", "compact"));
+		final int games = Integer.parseInt(options.getOrDefault("games", "10000"));
+		final long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+		final int plies = Integer.parseInt(options.getOrDefault("plies", "500"));
+		final int threads = Integer.parseInt(options.getOrDefault("threads",
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+		System.out.println(candidate.getClass().getSimpleName() + " against " + reference.getClass().getSimpleName()
+				+ ": " + games + " games from seed " + seed + " on " + threads + " threads");
+		final long start = System.nanoTime();
+		try {
+			final long played = new Differential(reference, candidate).run(seed, games, plies, threads);
+			final double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("OK: %,d plies in %.2fs (%,.0f plies/s)%n", played, seconds, played / seconds);
+		} catch (DivergenceException e) {
+			System.out.println("DIVERGED: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Factory<GameState> factory(String name) {
+		switch (name) {
+			case "my": return new MyGameStateFactory();
+			case "compact": return new CompactGameStateFactory();
+			default:
+				try {
+					return (Factory<GameState>) Class.forName(name).getConstructor().newInstance();
+				} catch (ClassNotFoundException | NoSuchMethodException | InstantiationException
+						| IllegalAccessException | InvocationTargetException e) {
+					throw new IllegalArgumentException("No game state factory called " + name, e);
+				}
+		}
+	}
+}
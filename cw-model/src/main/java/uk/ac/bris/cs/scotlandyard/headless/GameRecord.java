@@ -0,0 +1,76 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+
+/**
+ * The outcome of one headless game: who won, how long it went on for and how long each Ai took
+ * over every move it picked.
+ */
+public final class GameRecord {
+	private final int seed;
+	private final ImmutableSet<Piece> winner;
+	private final int rounds;
+	private final long[] mrXLatencies;
+	private final long[] detectiveLatencies;
+	private final String abandoned;
+
+	GameRecord(int seed,
+	           @Nonnull ImmutableSet<Piece> winner,
+	           int rounds,
+	           @Nonnull long[] mrXLatencies,
+	           @Nonnull long[] detectiveLatencies,
+	           @Nullable String abandoned) {
+		this.seed = seed;
+		this.winner = Objects.requireNonNull(winner);
+		this.rounds = rounds;
+		this.mrXLatencies = mrXLatencies;
+		this.detectiveLatencies = detectiveLatencies;
+		this.abandoned = abandoned;
+	}
+	/**
+	 * @return the seed the starting locations were drawn with
+	 */
+	public int seed() { return seed; }
+	/**
+	 * @return the winning pieces; empty if the game had to be abandoned without a winner
+	 */
+	@Nonnull public ImmutableSet<Piece> winner() { return winner; }
+	/**
+	 * @return whether MrX won
+	 */
+	public boolean mrXWon() { return winner.stream().anyMatch(Piece::isMrX); }
+	/**
+	 * @return whether the detectives won
+	 */
+	public boolean detectivesWon() { return winner.stream().anyMatch(Piece::isDetective); }
+	/**
+	 * @return the number of entries in MrX's travel log when the game ended
+	 */
+	public int rounds() { return rounds; }
+	/**
+	 * @return the time MrX's Ai took to pick each of its moves, in nanoseconds
+	 */
+	@Nonnull public long[] mrXLatencies() { return mrXLatencies.clone(); }
+	/**
+	 * @return the time the detectives' Ai took to pick each of its moves, in nanoseconds
+	 */
+	@Nonnull public long[] detectiveLatencies() { return detectiveLatencies.clone(); }
+	/**
+	 * @return why the game was ended before the model declared a winner, if it was: an Ai timed
+	 * out, threw or picked an illegal move (and lost), the game stopped making progress, or it
+	 * failed altogether and has no winner
+	 */
+	@Nonnull public Optional<String> abandoned() { return Optional.ofNullable(abandoned); }
+	@Override public String toString() {
+		return "GameRecord{seed=" + seed + ", winner=" + winner + ", rounds=" + rounds
+				+ (abandoned == null ? "" : ", abandoned=" + abandoned) + "}";
+	}
+}
@@ -0,0 +1,165 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.Piece;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/**
+ * Plays whole games between two {@link Ai}s on a {@link GameState} factory, without any UI.
+ * <br>
+ * Each move is picked the way the UI's MapController asks for one: on an Ai thread, with a
+ * terminate flag that is raised once the timeout passes. An Ai that runs out of time, throws, or
+ * picks a move that isn't available loses, as it would in the UI, and so does one picking an
+ * available move the model then refuses to make. Starting locations are drawn
+ * from a seed with {@link ScotlandYard#generateMrXLocation(int)} and
+ * {@link ScotlandYard#generateDetectiveLocations(int, int)}, so a seed always gives the same start.
+ */
+public final class HeadlessGame {
+	private final GameSetup setup;
+	private final Factory<GameState> factory;
+	private final int detectiveCount;
+	private final Duration timeout;
+	private final ExecutorService executor;
+
+	/**
+	 * @param setup the game setup
+	 * @param factory the factory the game is built with
+	 * @param detectiveCount how many detectives play, up to {@link ScotlandYard#DETECTIVES}
+	 * @param timeout how long an Ai gets to pick a move
+	 * @param executor where the Ais pick their moves
+	 */
+	public HeadlessGame(@Nonnull GameSetup setup,
+	                    @Nonnull Factory<GameState> factory,
+	                    int detectiveCount,
+	                    @Nonnull Duration timeout,
+	                    @Nonnull ExecutorService executor) {
+		if (detectiveCount < 1 || detectiveCount > ScotlandYard.DETECTIVES.size())
+			throw new IllegalArgumentException("Between 1 and " + ScotlandYard.DETECTIVES.size()
+					+ " detectives can play, not " + detectiveCount);
+		this.setup = Objects.requireNonNull(setup);
+		this.factory = Objects.requireNonNull(factory);
+		this.detectiveCount = detectiveCount;
+		this.timeout = Objects.requireNonNull(timeout);
+		this.executor = Objects.requireNonNull(executor);
+	}
+
+	/**
+	 * @param seed the seed for the starting locations
+	 * @return the players at the start of the game, MrX first
+	 */
+	@Nonnull public ImmutableList<Player> players(int seed) { return players(seed, detectiveCount); }
+
+	/**
+	 * @param seed the seed for the starting locations
+	 * @param detectiveCount the number of detectives
+	 * @return the players at the start of a standard game, MrX first
+	 */
+	@Nonnull public static ImmutableList<Player> players(int seed, int detectiveCount) {
+		final var players = ImmutableList.<Player>builder()
+				.add(new Player(MRX, ScotlandYard.defaultMrXTickets(), ScotlandYard.generateMrXLocation(seed)));
+		final var locations = ScotlandYard.generateDetectiveLocations(seed, detectiveCount);
+		final var pieces = ScotlandYard.DETECTIVES.asList();
+		for (int i = 0; i < detectiveCount; i++)
+			players.add(new Player(pieces.get(i), ScotlandYard.defaultDetectiveTickets(), locations.get(i)));
+		return players.build();
+	}
+
+	/**
+	 * Plays one game to the end. Nothing is printed; {@link Ai#onStart()} and
+	 * {@link Ai#onTerminate()} are left to the caller.
+	 *
+	 * @param mrXAi the Ai playing MrX
+	 * @param detectiveAi the Ai playing every detective
+	 * @param seed the seed for the starting locations
+	 * @return the outcome
+	 * @throws InterruptedException if the calling thread is interrupted
+	 */
+	@Nonnull public GameRecord play(@Nonnull Ai mrXAi, @Nonnull Ai detectiveAi, int seed)
+			throws InterruptedException {
+		final ImmutableList<Player> players = players(seed);
+		GameState state = factory.build(setup, players.get(0), players.subList(1, players.size()));
+		final ImmutableSet<Piece> detectives = state.getPlayers().stream()
+				.filter(Piece::isDetective).collect(ImmutableSet.toImmutableSet());
+		final Latencies mrXLatencies = new Latencies();
+		final Latencies detectiveLatencies = new Latencies();
+		String abandoned = null;
+		ImmutableSet<Piece> winner = state.getWinner();
+		while (winner.isEmpty()) {
+			final ImmutableSet<Move> moves = state.getAvailableMoves();
+			final boolean mrX = moves.iterator().next().commencedBy().isMrX();
+			final Ai ai = mrX ? mrXAi : detectiveAi;
+			final GameState current = state;
+			final AtomicBoolean terminate = new AtomicBoolean(false);
+			final long start = System.nanoTime();
+			final Future<Move> picked = executor.submit(() -> ai.pickMove(current, terminate));
+			Move move = null;
+			try {
+				move = picked.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+				if (!moves.contains(move))
+					abandoned = "Ai(" + ai.name() + ") selected an invalid move, got: " + move;
+			} catch (TimeoutException e) {
+				terminate.set(true);
+				picked.cancel(true);
+				abandoned = "Ai(" + ai.name() + ") timed out after " + timeout;
+			} catch (ExecutionException e) {
+				abandoned = "Ai(" + ai.name() + ") threw an exception while picking a move: " + e.getCause();
+			}
+			(mrX ? mrXLatencies : detectiveLatencies).add(System.nanoTime() - start);
+			if (abandoned == null) {
+				try {
+					state = state.advance(move);
+				} catch (IllegalArgumentException e) {
+					// the factories offer doubles using a ticket twice that MrX holds only one of
+					abandoned = "Ai(" + ai.name() + ") selected a move the model refused: " + move + ", " + e.getMessage();
+				}
+			}
+			if (abandoned != null) {
+				winner = mrX ? detectives : ImmutableSet.of(MRX);
+				break;
+			}
+			if (state == current) {
+				// the model can hand MrX the turn while only detectives without tickets are left
+				// to move, and his move then changes nothing
+				abandoned = "the game stopped making progress";
+				break;
+			}
+			winner = state.getWinner();
+		}
+		return new GameRecord(seed, winner, state.getMrXTravelLog().size(),
+				mrXLatencies.toArray(), detectiveLatencies.toArray(), abandoned);
+	}
+
+	private static final class Latencies {
+		private long[] values = new long[32];
+		private int size;
+
+		void add(long value) {
+			if (size == values.length) values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		long[] toArray() { return Arrays.copyOf(values, size); }
+	}
+}
@@ -0,0 +1,42 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options shared by the headless tools, in the form {@code --key value}, or
+ * {@code --key} alone for a flag.
+ */
+public final class Options {
+
+	private Options() {}
+
+	/**
+	 * @param args the arguments
+	 * @return the value of each option by key; flags map to the empty string
+	 * @throws IllegalArgumentException if an argument isn't an option or its value
+	 */
+	public static Map<String, String> parse(final String[] args) {
+		final Map<String, String> options = new HashMap<>();
+		for (int i = 0; i < args.length; i++) {
+			if (!args[i].startsWith("--"))
+				throw new IllegalArgumentException("Expected an option, got " + args[i]);
+			final String key = args[i].substring(2);
+			if (i + 1 < args.length && !args[i + 1].startsWith("--")) options.put(key, args[++i]);
+			else options.put(key, "");
+		}
+		return options;
+	}
+
+	/**
+	 * @param options the parsed options
+	 * @param key the option
+	 * @return the option's value
+	 * @throws IllegalArgumentException if the option is missing or has no value
+	 */
+	public static String require(final Map<String, String> options, final String key) {
+		final String value = options.get(key);
+		if (value == null || value.isEmpty()) throw new IllegalArgumentException("Missing --" + key);
+		return value;
+	}
+}
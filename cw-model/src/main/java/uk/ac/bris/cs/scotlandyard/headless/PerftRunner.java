@@ -0,0 +1,85 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+import java.util.Map;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.CompactGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.Move;
+import uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory;
+import uk.ac.bris.cs.scotlandyard.model.Perft;
+import uk.ac.bris.cs.scotlandyard.model.Player;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard;
+import uk.ac.bris.cs.scotlandyard.model.SearchBoard;
+
+/**
+ * Runs {@link Perft} from a standard starting position and prints the count and speed at each
+ * depth. Run with, for example:
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=uk.ac.bris.cs.scotlandyard.headless.PerftRunner \
+ *     -Dexec.args="--depth 5 --seed 3 --engine search"
+ * </pre>
+ * Options:
+ * <pre>
+ * --depth N           deepest depth to count to, 4 by default
+ * --seed S            seed of the starting locations, 0 by default
+ * --count N           number of detectives, 5 by default
+ * --engine NAME       my ({@link MyGameStateFactory}, the default), compact
+ *                     ({@link CompactGameStateFactory}) or search ({@link SearchBoard})
+ * --divide            count below each move at the deepest depth only, on several threads
+ * --threads N         threads to divide on, one per core by default
+ * </pre>
+ */
+public final class PerftRunner {
+
+	private PerftRunner() {}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		final Map<String, String> options = Options.parse(args);
+		final int depth = Integer.parseInt(options.getOrDefault("depth", "4"));
+		final int seed = Integer.parseInt(options.getOrDefault("seed", "0"));
+		final int count = Integer.parseInt(options.getOrDefault("count", "5"));
+		final String engine = options.getOrDefault("engine", "my");
+		final int threads = Integer.parseInt(options.getOrDefault("threads",
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+		final GameSetup setup = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		final ImmutableList<Player> players = HeadlessGame.players(seed, count);
+		final Player mrX = players.get(0);
+		final ImmutableList<Player> detectives = players.subList(1, players.size());
+		System.out.println("seed " + seed + ", " + count + " detectives, engine " + engine + ": " + players);
+
+		final SearchBoard board;
+		final GameState state;
+		switch (engine) {
+			case "my": board = null; state = new MyGameStateFactory().build(setup, mrX, detectives); break;
+			case "compact": board = null; state = new CompactGameStateFactory().build(setup, mrX, detectives); break;
+			case "search": board = new SearchBoard(setup, mrX, detectives); state = null; break;
+			default: throw new IllegalArgumentException("No engine called " + engine);
+		}
+
+		if (options.containsKey("divide")) {
+			if (state == null) throw new IllegalArgumentException("--divide needs a game state engine");
+			final long start = System.nanoTime();
+			final ImmutableMap<Move, Long> divided = Perft.divide(state, depth, threads);
+			final long elapsed = System.nanoTime() - start;
+			divided.forEach((move, n) -> System.out.println(move + ": " + n));
+			print(depth, divided.values().stream().mapToLong(Long::longValue).sum(), elapsed);
+			return;
+		}
+		for (int d = 1; d <= depth; d++) {
+			final long start = System.nanoTime();
+			final long n = board == null ? Perft.perft(state, d) : Perft.perft(board, d);
+			print(d, n, System.nanoTime() - start);
+		}
+	}
+
+	private static void print(int depth, long count, long elapsedNanos) {
+		System.out.printf("depth %2d: %,15d positions in %8.3fs (%,.0f positions/s)%n",
+				depth, count, elapsedNanos / 1e9, count / (elapsedNanos / 1e9));
+	}
+}
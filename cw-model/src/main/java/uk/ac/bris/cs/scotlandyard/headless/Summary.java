@@ -0,0 +1,88 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Totals over a number of {@link GameRecord}s: wins for each side, abandoned games, and the
+ * spread of move latencies for each side.
+ */
+public final class Summary {
+	private int games;
+	private int mrXWins;
+	private int detectiveWins;
+	private int abandoned;
+	private long rounds;
+	private long[] mrXLatencies = new long[256];
+	private int mrXMoves;
+	private long[] detectiveLatencies = new long[256];
+	private int detectiveMoves;
+
+	public void add(@Nonnull GameRecord record) {
+		games++;
+		if (record.mrXWon()) mrXWins++;
+		if (record.detectivesWon()) detectiveWins++;
+		if (record.abandoned().isPresent()) abandoned++;
+		rounds += record.rounds();
+		final long[] mrX = record.mrXLatencies();
+		mrXLatencies = append(mrXLatencies, mrXMoves, mrX);
+		mrXMoves += mrX.length;
+		final long[] detectives = record.detectiveLatencies();
+		detectiveLatencies = append(detectiveLatencies, detectiveMoves, detectives);
+		detectiveMoves += detectives.length;
+	}
+
+	int games() { return games; }
+	int mrXWins() { return mrXWins; }
+	int detectiveWins() { return detectiveWins; }
+
+	public void print(@Nonnull PrintStream out, long elapsedNanos) {
+		final double seconds = elapsedNanos / 1e9;
+		out.printf("games:       %d in %.2fs (%.2f games/s)%n", games, seconds, games / seconds);
+		printResults(out);
+	}
+
+	/*
+		Everything but the throughput, for games that shared their time with others
+	*/
+	public void printResults(@Nonnull PrintStream out) {
+		out.printf("MrX wins:    %d (%.1f%%)%n", mrXWins, percent(mrXWins));
+		out.printf("Det. wins:   %d (%.1f%%)%n", detectiveWins, percent(detectiveWins));
+		out.printf("abandoned:   %d%n", abandoned);
+		out.printf("mean rounds: %.1f%n", games == 0 ? 0 : (double) rounds / games);
+		printLatencies(out, "MrX", Arrays.copyOf(mrXLatencies, mrXMoves));
+		printLatencies(out, "Det.", Arrays.copyOf(detectiveLatencies, detectiveMoves));
+	}
+
+	private double percent(int count) { return games == 0 ? 0 : 100.0 * count / games; }
+
+	private static void printLatencies(PrintStream out, String side, long[] latencies) {
+		if (latencies.length == 0) {
+			out.printf("%-4s moves:  none%n", side);
+			return;
+		}
+		final long[] sorted = latencies; // always a copy, so sorted in place
+		Arrays.sort(sorted);
+		final double mean = Arrays.stream(sorted).average().orElse(0);
+		out.printf("%-4s moves:  %d, ms/move mean %.3f p50 %.3f p99 %.3f max %.3f%n", side, sorted.length,
+				mean / 1e6, percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6,
+				sorted[sorted.length - 1] / 1e6);
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+	}
+
+	/*
+		Appends values after the first size entries of buffer, growing it by doubling
+	*/
+	private static long[] append(long[] buffer, int size, long[] values) {
+		long[] result = buffer;
+		if (size + values.length > result.length)
+			result = Arrays.copyOf(result, Math.max(result.length * 2, size + values.length));
+		System.arraycopy(values, 0, result, size, values.length);
+		return result;
+	}
+}
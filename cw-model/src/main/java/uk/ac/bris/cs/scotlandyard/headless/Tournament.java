@@ -0,0 +1,200 @@
+package uk.ac.bris.cs.scotlandyard.headless;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.AiScanner;
+import uk.ac.bris.cs.scotlandyard.model.Ai;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.GameSetup;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+
+/**
+ * Plays every pairing of a set of {@link Ai}s against each other, both ways round, over many
+ * seeded games spread across a work-stealing pool.
+ * <br>
+ * Each game is one task and gets Ai instances of its own, created and dropped inside the task,
+ * so no Ai is ever shared between games. Game i of every matchup starts from the locations
+ * drawn for seed + i, and each Ai is created with a seed mixed from the tournament seed, the
+ * matchup, the game and its side (see {@link AiScanner#instantiate(Class, long)}). A tournament
+ * run twice with the same seed therefore plays the same games, as long as the Ais are
+ * deterministic given their seed and don't time out. Results come back in game order however
+ * the tasks were scheduled. A game that fails, say because an Ai can't be created or the model
+ * throws, is recorded with its seed as abandoned without a winner, and the other games go on.
+ */
+public final class Tournament {
+
+	/**
+	 * The games played between one MrX Ai and one detective Ai
+	 */
+	public static final class Matchup {
+		private final Class<? extends Ai> mrX;
+		private final Class<? extends Ai> detectives;
+		private final ImmutableList<GameRecord> records;
+
+		Matchup(Class<? extends Ai> mrX, Class<? extends Ai> detectives, ImmutableList<GameRecord> records) {
+			this.mrX = mrX;
+			this.detectives = detectives;
+			this.records = records;
+		}
+		/**
+		 * @return the Ai playing MrX
+		 */
+		@Nonnull public Class<? extends Ai> mrX() { return mrX; }
+		/**
+		 * @return the Ai playing the detectives
+		 */
+		@Nonnull public Class<? extends Ai> detectives() { return detectives; }
+		/**
+		 * @return the games, in seed order
+		 */
+		@Nonnull public ImmutableList<GameRecord> records() { return records; }
+		/**
+		 * @return the number of games MrX won
+		 */
+		public int mrXWins() { return (int) records.stream().filter(GameRecord::mrXWon).count(); }
+		/**
+		 * @return the number of games abandoned without a winner from the model
+		 */
+		public int abandoned() { return (int) records.stream().filter(r -> r.abandoned().isPresent()).count(); }
+		/**
+		 * @return MrX's win rate with its 95% Wilson score interval, as {rate, low, high}
+		 */
+		@Nonnull public double[] mrXWinRate() { return wilson(mrXWins(), records.size()); }
+	}
+
+	private final GameSetup setup;
+	private final Factory<GameState> factory;
+	private final int detectiveCount;
+	private final Duration timeout;
+	private final boolean lifecycle;
+
+	/**
+	 * @param setup the game setup
+	 * @param factory the factory games are built with
+	 * @param detectiveCount how many detectives play
+	 * @param timeout how long an Ai gets to pick a move
+	 * @param lifecycle whether to call {@link Ai#onStart()} and {@link Ai#onTerminate()} around
+	 * every game; they are meant for a UI session and can be slow, so are normally skipped
+	 */
+	public Tournament(@Nonnull GameSetup setup,
+	                  @Nonnull Factory<GameState> factory,
+	                  int detectiveCount,
+	                  @Nonnull Duration timeout,
+	                  boolean lifecycle) {
+		this.setup = Objects.requireNonNull(setup);
+		this.factory = Objects.requireNonNull(factory);
+		this.detectiveCount = detectiveCount;
+		this.timeout = Objects.requireNonNull(timeout);
+		this.lifecycle = lifecycle;
+	}
+
+	/**
+	 * @param ais the Ais taking part; each plays each, itself included, as both MrX and detectives
+	 * @param games the number of games per matchup
+	 * @param seed the tournament seed
+	 * @param parallelism the number of games played at once
+	 * @return one matchup per ordered pair of Ais, MrX Ai first
+	 * @throws InterruptedException if interrupted while waiting for the games
+	 */
+	@Nonnull public ImmutableList<Matchup> play(@Nonnull List<Class<? extends Ai>> ais,
+	                                            int games, int seed, int parallelism)
+			throws InterruptedException {
+		final ExecutorService pool = Executors.newWorkStealingPool(parallelism);
+		final ExecutorService aiThreads = Executors.newCachedThreadPool(r -> {
+			final Thread thread = new Thread(r, "tournament-ai");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			final HeadlessGame game = new HeadlessGame(setup, factory, detectiveCount, timeout, aiThreads);
+			final List<List<Future<GameRecord>>> pending = new ArrayList<>();
+			for (int m = 0; m < ais.size() * ais.size(); m++) {
+				final Class<? extends Ai> mrX = ais.get(m / ais.size());
+				final Class<? extends Ai> detectives = ais.get(m % ais.size());
+				final List<Future<GameRecord>> matchup = new ArrayList<>(games);
+				for (int i = 0; i < games; i++)
+					matchup.add(pool.submit(task(game, mrX, detectives, seed, m, i)));
+				pending.add(matchup);
+			}
+			final var matchups = ImmutableList.<Matchup>builder();
+			for (int m = 0; m < pending.size(); m++) {
+				final var records = ImmutableList.<GameRecord>builderWithExpectedSize(games);
+				for (int i = 0; i < games; i++) records.add(record(pending.get(m).get(i), seed + i));
+				matchups.add(new Matchup(ais.get(m / ais.size()), ais.get(m % ais.size()), records.build()));
+			}
+			return matchups.build();
+		} finally {
+			pool.shutdownNow();
+			aiThreads.shutdownNow();
+		}
+	}
+
+	private static GameRecord record(Future<GameRecord> game, int seed) throws InterruptedException {
+		try {
+			return game.get();
+		} catch (ExecutionException e) {
+			return new GameRecord(seed, ImmutableSet.of(), 0, new long[0], new long[0],
+					"the game failed: " + Throwables.getRootCause(e));
+		}
+	}
+
+	private Callable<GameRecord> task(HeadlessGame game, Class<? extends Ai> mrXClass,
+	                                  Class<? extends Ai> detectivesClass, int seed, int matchup, int index) {
+		return () -> {
+			final Ai mrX = AiScanner.instantiate(mrXClass, aiSeed(seed, matchup, index, 0));
+			final Ai detectives = AiScanner.instantiate(detectivesClass, aiSeed(seed, matchup, index, 1));
+			if (lifecycle) {
+				mrX.onStart();
+				detectives.onStart();
+			}
+			try {
+				return game.play(mrX, detectives, seed + index);
+			} finally {
+				if (lifecycle) {
+					mrX.onTerminate();
+					detectives.onTerminate();
+				}
+			}
+		};
+	}
+
+	/*
+		SplitMix64 over the tournament seed and the game's coordinates, so neighbouring games and
+		the two sides of a game get unrelated Ai seeds
+	*/
+	static long aiSeed(int seed, int matchup, int index, int side) {
+		long z = ((long) seed << 32 ^ (long) matchup << 20 ^ (long) index << 1 ^ side) + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @param successes the number of successes
+	 * @param trials the number of trials
+	 * @return the success rate with its 95% Wilson score interval, as {rate, low, high}
+	 */
+	@Nonnull static double[] wilson(int successes, int trials) {
+		if (trials == 0) return new double[]{0, 0, 1};
+		final double z = 1.959964;
+		final double p = (double) successes / trials;
+		final double denominator = 1 + z * z / trials;
+		final double centre = (p + z * z / (2 * trials)) / denominator;
+		final double spread = z * Math.sqrt(p * (1 - p) / trials + z * z / (4.0 * trials * trials)) / denominator;
+		return new double[]{p, Math.max(0, centre - spread), Math.min(1, centre + spread)};
+	}
+}
@@ -0,0 +1,414 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.FunctionalVisitor;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.Visitor;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A {@link GameState} factory playing by exactly the same rules as {@link MyGameStateFactory},
+ * but backed by a primitive encoding of the board so that {@link GameState#advance(Move)} only
+ * allocates the new state and a copy of one small {@code int[]}.
+ * <br>
+ * Every player owns {@link #STRIDE} consecutive slots of the board array: its location followed
+ * by one count per {@link Ticket} in ordinal order. MrX is always player 0, detectives follow in
+ * the order they were supplied. The pieces still to move are a bitmask over player indices and
+ * MrX's travel log is an {@code int[]} of packed entries. The winner and the available moves are
+ * only worked out when first asked for.
+ */
+public final class CompactGameStateFactory implements Factory<GameState> {
+
+	static final int STRIDE = 1 + Ticket.values().length;
+	static final int MRX_BIT = 1;
+
+	private static final Visitor<SingleMove> AS_SINGLE = new FunctionalVisitor<>(m -> m, m -> null);
+	private static final Visitor<DoubleMove> AS_DOUBLE = new FunctionalVisitor<>(m -> null, m -> m);
+	private static final Ticket[] TICKETS = Ticket.values();
+
+	/*
+		Everything that stays the same for the whole game, shared by every state of that game
+	*/
+	private static final class Game {
+		private final GameSetup setup;
+		private final CompactGraph graph;
+		private final MovePool pool;
+		private final Piece[] pieces;
+		private final ImmutableSet<Piece> players;
+		private final ImmutableSet<Piece> detectives;
+		private final int detectiveMask;
+		private final long detectivesToMoveKey;
+
+		private Game(final GameSetup setup, final Piece[] pieces) {
+			this.setup = setup;
+			this.graph = CompactGraph.of(setup);
+			this.pool = MovePool.of(setup);
+			this.pieces = pieces;
+			this.players = ImmutableSet.copyOf(pieces);
+			this.detectives = ImmutableSet.copyOf(Arrays.asList(pieces).subList(1, pieces.length));
+			this.detectiveMask = ((1 << pieces.length) - 1) & ~MRX_BIT;
+			long key = 0;
+			for (final Piece detective : detectives) key ^= Zobrist.toMove(detective);
+			this.detectivesToMoveKey = key;
+		}
+
+		private int indexOf(final Piece piece) {
+			for (int i = 0; i < pieces.length; i++) {
+				if (pieces[i].equals(piece)) return i;
+			}
+			return -1;
+		}
+
+		/*
+			Tickets that can be used between two nodes, one bit per ticket ordinal
+		*/
+		private int tickets(final int source, final int destination) {
+			return CompactGraph.requiredTickets(graph.transportsBetween(source, destination));
+		}
+
+		/*
+			Zobrist key of a player's location and tickets as laid out in the board array
+		*/
+		private long playerKey(final int[] board, final int index) {
+			long key = Zobrist.location(pieces[index], board[index * STRIDE]);
+			for (final Ticket ticket : TICKETS)
+				key ^= Zobrist.tickets(pieces[index], ticket, board[index * STRIDE + 1 + ticket.ordinal()]);
+			return key;
+		}
+	}
+
+	private static final class CompactGameState implements TrustedGameState, HashedBoard {
+		private final Game game;
+		private final int[] board;
+		private final int remaining;
+		private final int[] log;
+		private final Occupancy occupied; // where the detectives stand
+		private final long positionKey;
+		private volatile ImmutableSet<Piece> winner;
+		private volatile ImmutableSet<Move> moves;
+		private volatile ImmutableList<LogEntry> travelLog;
+
+		private CompactGameState(final Game game,
+								 final int[] board,
+								 final int remaining,
+								 final int[] log,
+								 final Occupancy occupied,
+								 final long positionKey) {
+			this.game = game;
+			this.board = board;
+			this.remaining = remaining;
+			this.log = log;
+			this.occupied = occupied;
+			this.positionKey = positionKey;
+		}
+
+		@Nonnull
+		@Override public GameSetup getSetup() { return game.setup; }
+		@Nonnull
+		@Override public ImmutableSet<Piece> getPlayers() { return game.players; }
+		@Nonnull
+		@Override public Optional<Integer> getDetectiveLocation(final Detective detective) {
+			final int index = game.indexOf(detective);
+			return index > 0 ? Optional.of(location(index)) : Optional.empty();
+		}
+		@Nonnull
+		@Override public Optional<TicketBoard> getPlayerTickets(final Piece piece) {
+			final int index = game.indexOf(piece);
+			if (index < 0) return Optional.empty();
+			return Optional.of(ticket -> count(index, ticket));
+		}
+		@Nonnull
+		@Override public ImmutableList<LogEntry> getMrXTravelLog() {
+			ImmutableList<LogEntry> decoded = travelLog;
+			if (decoded == null) {
+				final var builder = ImmutableList.<LogEntry>builderWithExpectedSize(log.length);
+				for (final int entry : log) builder.add(LogEntry.decode(entry));
+				travelLog = decoded = builder.build();
+			}
+			return decoded;
+		}
+		@Nonnull
+		@Override public ImmutableSet<Piece> getWinner() {
+			// racing threads can only ever compute equal values, so there is nothing to lock
+			ImmutableSet<Piece> result = winner;
+			if (result == null) winner = result = checkWinner();
+			return result;
+		}
+		@Nonnull
+		@Override public ImmutableSet<Move> getAvailableMoves() {
+			ImmutableSet<Move> available = moves;
+			if (available == null)
+				moves = available = getWinner().isEmpty() ? generateMoves() : ImmutableSet.of();
+			return available;
+		}
+		@Override public long positionKey() { return positionKey; }
+
+		@Nonnull
+		@Override public GameState advance(final Move move) {
+			if (!getWinner().isEmpty() || !isAvailable(move))
+				throw new IllegalArgumentException("Illegal move: " + move);
+			return advanceTrusted(move);
+		}
+
+		@Nonnull
+		@Override public TrustedGameState advanceTrusted(final Move move) {
+			final int index = game.indexOf(move.commencedBy());
+			// MyGameStateFactory leaves the state untouched when MrX moves on behalf of
+			// detectives that have run out of tickets
+			if ((remaining & (1 << index)) == 0) return this;
+
+			final int[] next = board.clone();
+			final SingleMove single = move.visit(AS_SINGLE);
+			if (index == 0) {
+				final int[] nextLog;
+				if (single != null) {
+					next[0] = single.destination;
+					use(next, 0, single.ticket);
+					nextLog = appendLog(single.ticket, single.destination, 1);
+				} else {
+					final DoubleMove x2 = move.visit(AS_DOUBLE);
+					next[0] = x2.destination2;
+					use(next, 0, x2.ticket2);
+					use(next, 0, x2.ticket1);
+					use(next, 0, Ticket.DOUBLE);
+					// both entries carry the final ticket and location, as in MyGameStateFactory
+					nextLog = appendLog(x2.ticket2, x2.destination2, 2);
+				}
+				final long key = positionKey ^ game.playerKey(board, 0) ^ game.playerKey(next, 0)
+						^ Zobrist.toMove(game.pieces[0]) ^ game.detectivesToMoveKey
+						^ Zobrist.round(log.length) ^ Zobrist.round(nextLog.length);
+				return new CompactGameState(game, next, game.detectiveMask, nextLog, occupied, key);
+			}
+			next[index * STRIDE] = single.destination;
+			use(next, index, single.ticket);
+			next[1 + single.ticket.ordinal()]++;
+			final int nextRemaining = remaining & ~(1 << index);
+			long key = positionKey ^ game.playerKey(board, index) ^ game.playerKey(next, index)
+					^ game.playerKey(board, 0) ^ game.playerKey(next, 0) ^ Zobrist.toMove(game.pieces[index]);
+			if (nextRemaining == 0) key ^= Zobrist.toMove(game.pieces[0]);
+			return new CompactGameState(game, next, nextRemaining == 0 ? MRX_BIT : nextRemaining, log,
+					occupied.moved(location(index), single.destination), key);
+		}
+
+		private int location(final int index) { return board[index * STRIDE]; }
+
+		private int count(final int index, final Ticket ticket) {
+			return board[index * STRIDE + 1 + ticket.ordinal()];
+		}
+
+		private boolean has(final int index, final Ticket ticket) { return count(index, ticket) > 0; }
+
+		private int heldTickets(final int index) {
+			int held = 0;
+			for (final Ticket ticket : TICKETS) {
+				if (has(index, ticket)) held |= 1 << ticket.ordinal();
+			}
+			return held;
+		}
+
+		private boolean hasTravelTickets(final int index) {
+			return has(index, Ticket.TAXI) || has(index, Ticket.BUS) || has(index, Ticket.UNDERGROUND);
+		}
+
+		private boolean occupied(final int node) { return occupied.contains(node); }
+
+		private int roundsLeft() { return game.setup.rounds.size() - log.length; }
+
+		/*
+			Detectives still to move this round that hold at least one travel ticket
+		*/
+		private int movableDetectives() {
+			int mask = 0;
+			for (int i = 1; i < game.pieces.length; i++) {
+				if ((remaining & (1 << i)) != 0 && hasTravelTickets(i)) mask |= 1 << i;
+			}
+			return mask;
+		}
+
+		/*
+			MrX also gets to move when every detective left in the round is out of tickets
+		*/
+		private boolean mrXToMove() { return remaining == MRX_BIT || movableDetectives() == 0; }
+
+		private ImmutableSet<Piece> checkWinner() {
+			boolean detectivesHaveTickets = false;
+			for (int i = 1; i < game.pieces.length; i++) detectivesHaveTickets |= hasTravelTickets(i);
+			if (!detectivesHaveTickets) return ImmutableSet.of(game.pieces[0]);
+			if (roundsLeft() == 0 && (remaining & MRX_BIT) != 0) return ImmutableSet.of(game.pieces[0]);
+			if (occupied(location(0)) || !hasAnyMove()) return game.detectives;
+			return ImmutableSet.of();
+		}
+
+		private boolean hasAnyMove() {
+			if (mrXToMove()) return hasSingleMove(0);
+			final int movable = movableDetectives();
+			for (int i = 1; i < game.pieces.length; i++) {
+				if ((movable & (1 << i)) != 0 && hasSingleMove(i)) return true;
+			}
+			return false;
+		}
+
+		private boolean hasSingleMove(final int index) {
+			final int source = location(index);
+			final boolean secret = index == 0 && has(0, Ticket.SECRET);
+			final int held = heldTickets(index);
+			final CompactGraph graph = game.graph;
+			for (int edge = graph.start(source), end = graph.end(source); edge < end; edge++) {
+				if (occupied(graph.target(edge))) continue;
+				final int tickets = CompactGraph.requiredTickets(graph.transports(edge));
+				if ((secret && tickets != 0) || (tickets & held) != 0) return true;
+			}
+			return false;
+		}
+
+		/*
+			Mirrors Moves.makeSingleMoves and Moves.makeDoubleMove without building the move sets
+		*/
+		private boolean isAvailable(final Move move) {
+			final int index = game.indexOf(move.commencedBy());
+			if (index < 0 || move.source() != location(index)) return false;
+			if (index == 0 ? !mrXToMove() : (movableDetectives() & (1 << index)) == 0) return false;
+			final SingleMove single = move.visit(AS_SINGLE);
+			if (single != null) return canMove(index, single.source(), single.ticket, single.destination);
+			final DoubleMove x2 = move.visit(AS_DOUBLE);
+			if (index != 0 || !has(0, Ticket.DOUBLE) || roundsLeft() <= 1) return false;
+			if (x2.ticket1 == x2.ticket2 && x2.ticket1 != Ticket.SECRET
+					&& count(0, x2.ticket1) < 2) return false;
+			return canMove(0, x2.source(), x2.ticket1, x2.destination1)
+					&& canMove(0, x2.destination1, x2.ticket2, x2.destination2);
+		}
+
+		private boolean canMove(final int index, final int source,
+								final Ticket ticket, final int destination) {
+			if (occupied(destination) || !has(index, ticket)) return false;
+			final int tickets = game.tickets(source, destination);
+			if (tickets == 0) return false;
+			return (index == 0 && ticket == Ticket.SECRET) || (tickets & (1 << ticket.ordinal())) != 0;
+		}
+
+		private ImmutableSet<Move> generateMoves() {
+			final var builder = ImmutableSet.<Move>builder();
+			if (mrXToMove()) {
+				final Piece mrX = game.pieces[0];
+				final int source = location(0);
+				addSingleMoves(builder, 0, source);
+				if (has(0, Ticket.DOUBLE) && roundsLeft() > 1) {
+					for (final SingleMove hop : singleMoves(0, source)) {
+						for (final SingleMove next : singleMoves(0, hop.destination)) {
+							if (hop.ticket == next.ticket && hop.ticket != Ticket.SECRET
+									&& count(0, hop.ticket) < 2) continue;
+							builder.add(game.pool.doubleMove(mrX, source, hop.ticket, hop.destination,
+									next.ticket, next.destination));
+						}
+					}
+				}
+			} else {
+				final int movable = movableDetectives();
+				for (int i = 1; i < game.pieces.length; i++) {
+					if ((movable & (1 << i)) != 0) addSingleMoves(builder, i, location(i));
+				}
+			}
+			return builder.build();
+		}
+
+		private ImmutableSet<SingleMove> singleMoves(final int index, final int source) {
+			final var builder = ImmutableSet.<SingleMove>builder();
+			addSingleMoves(builder, index, source);
+			return builder.build();
+		}
+
+		private void addSingleMoves(final ImmutableSet.Builder<? super SingleMove> builder,
+									final int index, final int source) {
+			final Piece piece = game.pieces[index];
+			final boolean secret = index == 0 && has(0, Ticket.SECRET);
+			final int held = heldTickets(index);
+			final CompactGraph graph = game.graph;
+			for (int edge = graph.start(source), end = graph.end(source); edge < end; edge++) {
+				final int destination = graph.target(edge);
+				if (occupied(destination)) continue;
+				final int tickets = CompactGraph.requiredTickets(graph.transports(edge));
+				for (int usable = tickets & held; usable != 0; usable &= usable - 1) {
+					builder.add(game.pool.single(piece, source, edge, TICKETS[Integer.numberOfTrailingZeros(usable)]));
+				}
+				if (secret && tickets != 0) builder.add(game.pool.single(piece, source, edge, Ticket.SECRET));
+			}
+		}
+
+		private int[] appendLog(final Ticket ticket, final int location, final int entries) {
+			final int[] next = Arrays.copyOf(log, log.length + entries);
+			for (int i = log.length; i < next.length; i++) {
+				next[i] = LogEntry.encode(ticket, game.setup.rounds.get(i) ? location : -1);
+			}
+			return next;
+		}
+	}
+
+	private static void use(final int[] board, final int index, final Ticket ticket) {
+		final int slot = index * STRIDE + 1 + ticket.ordinal();
+		if (board[slot] == 0) throw new IllegalArgumentException("No " + ticket + " remaining");
+		board[slot]--;
+	}
+
+	static void checkPlayers(final GameSetup setup,
+							 final Player mrX,
+							 final ImmutableList<Player> detectives) {
+		if (!mrX.isMrX()) throw new IllegalArgumentException(mrX + " is not MrX");
+		if (setup.rounds.isEmpty())
+			throw new IllegalArgumentException("game cannot start with 0 rounds");
+		if (!setup.graph.nodes().contains(mrX.location()))
+			throw new IllegalArgumentException(mrX + " is not on the graph");
+		for (int i = 0; i < detectives.size(); i++) {
+			final Player detective = detectives.get(i);
+			if (!detective.isDetective())
+				throw new IllegalArgumentException(detective + " is not a detective");
+			if (detective.has(Ticket.SECRET) || detective.has(Ticket.DOUBLE))
+				throw new IllegalArgumentException("Detective " + detective
+						+ " can't have a secret or double ticket.");
+			if (!setup.graph.nodes().contains(detective.location()))
+				throw new IllegalArgumentException(detective + " is not on the graph");
+			for (int j = i + 1; j < detectives.size(); j++) {
+				if (detective.piece().equals(detectives.get(j).piece()))
+					throw new IllegalArgumentException("Cannot have two equal detectives: "
+							+ detective + " " + detectives.get(j) + " are equal.");
+				if (detective.location() == detectives.get(j).location())
+					throw new IllegalArgumentException("Cannot have detective "
+							+ detective + " and " + detectives.get(j) + " in same location.");
+			}
+		}
+	}
+
+	@Nonnull @Override public GameState build(final GameSetup setup,
+											  final Player mrX,
+											  final ImmutableList<Player> detectives) {
+		Objects.requireNonNull(setup);
+		Objects.requireNonNull(mrX);
+		Objects.requireNonNull(detectives).forEach(Objects::requireNonNull);
+		checkPlayers(setup, mrX, detectives);
+
+		final Piece[] pieces = new Piece[1 + detectives.size()];
+		final int[] board = new int[pieces.length * STRIDE];
+		for (int i = 0; i < pieces.length; i++) {
+			final Player player = i == 0 ? mrX : detectives.get(i - 1);
+			pieces[i] = player.piece();
+			board[i * STRIDE] = player.location();
+			for (final Ticket ticket : TICKETS) {
+				board[i * STRIDE + 1 + ticket.ordinal()] = player.count(ticket);
+			}
+		}
+		final Game game = new Game(setup, pieces);
+		long key = Zobrist.toMove(pieces[0]) ^ Zobrist.round(0);
+		for (int i = 0; i < pieces.length; i++) key ^= game.playerKey(board, i);
+		return new CompactGameState(game, board, MRX_BIT, new int[0],
+				Occupancy.of(game.graph, detectives), key);
+	}
+}
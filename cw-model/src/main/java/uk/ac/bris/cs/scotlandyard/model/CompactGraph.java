@@ -0,0 +1,194 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import com.google.common.graph.ImmutableValueGraph;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * A read-only view of a {@link GameSetup#graph} in compressed sparse row form, so that walking
+ * the map is a scan over primitive arrays rather than hash lookups on boxed nodes.
+ * <br>
+ * The edges leaving a node are numbered from {@link #start(int)} up to, but not including,
+ * {@link #end(int)}; each edge has a {@link #target(int)} and a {@link #transports(int)} mask with
+ * one bit per {@link Transport} ordinal. Neighbours come in the same order as
+ * {@link com.google.common.graph.ValueGraph#adjacentNodes(Object)}. Nodes not in the graph simply
+ * have no edges.
+ * <br>
+ * Views are built once per graph and shared by every game played on it.
+ */
+public final class CompactGraph {
+
+	private static final ConcurrentMap<ImmutableValueGraph<Integer, ImmutableSet<Transport>>, CompactGraph>
+			CACHE = new MapMaker().weakKeys().makeMap(); // weak keys compare by identity
+	private static final Transport[] TRANSPORTS = Transport.values();
+	private static final int[] REQUIRED_TICKETS = new int[1 << TRANSPORTS.length];
+
+	static {
+		for (int mask = 0; mask < REQUIRED_TICKETS.length; mask++) {
+			for (Transport t : TRANSPORTS) {
+				if ((mask & (1 << t.ordinal())) != 0) REQUIRED_TICKETS[mask] |= 1 << t.requiredTicket().ordinal();
+			}
+		}
+	}
+
+	private final int[] nodes;
+	private final boolean[] present;
+	private final int[] offsets;
+	private final int[] targets;
+	private final byte[] transports;
+
+	private CompactGraph(ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		this.nodes = graph.nodes().stream().mapToInt(Integer::intValue).toArray();
+		int maxNode = -1;
+		for (int node : nodes) {
+			if (node < 0) throw new IllegalArgumentException("Negative node " + node);
+			maxNode = Math.max(maxNode, node);
+		}
+		this.present = new boolean[maxNode + 1];
+		for (int node : nodes) present[node] = true;
+		this.offsets = new int[maxNode + 2];
+		int edges = 0;
+		for (int node = 0; node <= maxNode; node++) {
+			offsets[node] = edges;
+			if (present[node]) edges += graph.adjacentNodes(node).size();
+		}
+		offsets[maxNode + 1] = edges;
+		this.targets = new int[edges];
+		this.transports = new byte[edges];
+		for (int node : nodes) {
+			int edge = offsets[node];
+			for (int target : graph.adjacentNodes(node)) {
+				targets[edge] = target;
+				for (Transport t : Objects.requireNonNull(graph.edgeValueOrDefault(node, target, ImmutableSet.of())))
+					transports[edge] |= (byte) (1 << t.ordinal());
+				edge++;
+			}
+		}
+	}
+
+	/**
+	 * @param setup the game setup
+	 * @return the compact view of the setup's graph
+	 */
+	@Nonnull public static CompactGraph of(@Nonnull GameSetup setup) {
+		return of(setup.graph);
+	}
+
+	/**
+	 * @param graph the graph
+	 * @return the compact view of the graph, built on first use
+	 */
+	@Nonnull public static CompactGraph of(
+			@Nonnull ImmutableValueGraph<Integer, ImmutableSet<Transport>> graph) {
+		return CACHE.computeIfAbsent(Objects.requireNonNull(graph), CompactGraph::new);
+	}
+
+	/**
+	 * @return the number of nodes in the graph
+	 */
+	public int nodeCount() { return nodes.length; }
+
+	/**
+	 * @return the number of edges, counting each direction of an undirected edge once
+	 */
+	public int edgeCount() { return targets.length; }
+
+	/**
+	 * @param index from 0 up to {@link #nodeCount()}
+	 * @return the node at that index, in the graph's own order
+	 */
+	public int node(int index) { return nodes[index]; }
+
+	/**
+	 * @return one more than the largest node, so arrays of that size can be indexed by node
+	 */
+	public int nodeBound() { return offsets.length - 1; }
+
+	/**
+	 * @param node the node
+	 * @return whether the node is in the graph
+	 */
+	public boolean contains(int node) { return node >= 0 && node < present.length && present[node]; }
+
+	/**
+	 * @param node the node
+	 * @return the first edge leaving the node
+	 */
+	public int start(int node) { return node < 0 || node >= nodeBound() ? 0 : offsets[node]; }
+
+	/**
+	 * @param node the node
+	 * @return one past the last edge leaving the node
+	 */
+	public int end(int node) { return node < 0 || node >= nodeBound() ? 0 : offsets[node + 1]; }
+
+	/**
+	 * @param node the node
+	 * @return the number of neighbours of the node
+	 */
+	public int degree(int node) { return end(node) - start(node); }
+
+	/**
+	 * @param edge the edge
+	 * @return the node the edge leads to
+	 */
+	public int target(int edge) { return targets[edge]; }
+
+	/**
+	 * @param edge the edge
+	 * @return the transports along the edge, one bit per {@link Transport} ordinal
+	 */
+	public int transports(int edge) { return transports[edge]; }
+
+	/**
+	 * @param source the source node
+	 * @param destination the destination node
+	 * @return the edge from source to destination or -1 if they aren't adjacent
+	 */
+	public int edge(int source, int destination) {
+		for (int edge = start(source), end = end(source); edge < end; edge++) {
+			if (targets[edge] == destination) return edge;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param source the source node
+	 * @param destination the destination node
+	 * @return whether the two nodes are adjacent
+	 */
+	public boolean hasEdge(int source, int destination) { return edge(source, destination) >= 0; }
+
+	/**
+	 * @param source the source node
+	 * @param destination the destination node
+	 * @return the transports between the two nodes, 0 if they aren't adjacent
+	 */
+	public int transportsBetween(int source, int destination) {
+		final int edge = edge(source, destination);
+		return edge < 0 ? 0 : transports[edge];
+	}
+
+	/**
+	 * @param transports a transport mask
+	 * @return the tickets the transports require, one bit per {@link Ticket} ordinal
+	 */
+	public static int requiredTickets(int transports) { return REQUIRED_TICKETS[transports]; }
+
+	/**
+	 * @param transports a transport mask
+	 * @param transport the transport
+	 * @return whether the mask contains the transport
+	 */
+	public static boolean has(int transports, @Nonnull Transport transport) {
+		return (transports & (1 << transport.ordinal())) != 0;
+	}
+}
@@ -0,0 +1,279 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Factory;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+
+/**
+ * Differential validation of a {@link GameState} factory against a reference one. Seeded random
+ * games are played on both at once, the same move going to both, and after every ply the two
+ * states have to agree on the winner, the available moves, MrX's travel log, the players, every
+ * ticket count and every detective location, and on the position key when both have one. At each
+ * ply a few moves that are nearly but not quite available are also tried on both; the two have to
+ * agree on whether {@code advance} accepts them.
+ * <br>
+ * A third of the games are standard games. The rest have one to five detectives, one to 24 rounds
+ * with random reveals and a random handful of tickets each, so that tickets run out and games end
+ * every way they can. A game only depends on its seed, so a {@link DivergenceException} names the
+ * seed that reproduces it.
+ */
+public final class Differential {
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final Detective[] DETECTIVES = Detective.values();
+	private static final int PROBES = 2;
+
+	private final Factory<GameState> reference;
+	private final Factory<GameState> candidate;
+	private final GameSetup standard;
+
+	/**
+	 * Thrown when the candidate and the reference disagree
+	 */
+	public static final class DivergenceException extends IllegalStateException {
+		private static final long serialVersionUID = 1L;
+		private final long seed;
+		private final int ply;
+
+		DivergenceException(long seed, int ply, String message) {
+			super("Seed " + seed + ", ply " + ply + ": " + message);
+			this.seed = seed;
+			this.ply = ply;
+		}
+
+		/**
+		 * @return the seed of the game that diverged
+		 */
+		public long seed() { return seed; }
+
+		/**
+		 * @return the number of plies played before the states diverged
+		 */
+		public int ply() { return ply; }
+	}
+
+	/**
+	 * @param reference the factory taken to be right, usually {@link MyGameStateFactory}
+	 * @param candidate the factory checked against it
+	 */
+	public Differential(@Nonnull Factory<GameState> reference, @Nonnull Factory<GameState> candidate) {
+		this.reference = Objects.requireNonNull(reference);
+		this.candidate = Objects.requireNonNull(candidate);
+		try {
+			this.standard = new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS);
+		} catch (IOException e) { throw new UncheckedIOException("Unable to read game graph", e); }
+	}
+
+	/**
+	 * Plays the games of a run of seeds, shared out between threads. Once a game diverges, the
+	 * games not yet started are skipped.
+	 *
+	 * @param firstSeed the seed of the first game; game i uses firstSeed + i
+	 * @param games the number of games
+	 * @param maxPlies the most plies to play in a game
+	 * @param parallelism the number of threads to play on
+	 * @return the total number of plies played
+	 * @throws DivergenceException for the lowest seed found to diverge
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	public long run(long firstSeed, int games, int maxPlies, int parallelism) throws InterruptedException {
+		if (parallelism < 1) throw new IllegalArgumentException("Parallelism " + parallelism + " is less than 1");
+		final AtomicBoolean diverged = new AtomicBoolean();
+		final ExecutorService executor = Executors.newWorkStealingPool(parallelism);
+		try {
+			final List<Future<Integer>> plies = new ArrayList<>(games);
+			for (int i = 0; i < games; i++) {
+				final long seed = firstSeed + i;
+				plies.add(executor.submit(() -> {
+					if (diverged.get()) return 0;
+					try {
+						return play(seed, maxPlies);
+					} catch (RuntimeException e) {
+						diverged.set(true);
+						throw e;
+					}
+				}));
+			}
+			long total = 0;
+			RuntimeException first = null;
+			for (Future<Integer> future : plies) {
+				try {
+					total += future.get();
+				} catch (ExecutionException e) {
+					if (first == null) first = e.getCause() instanceof RuntimeException
+							? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+				}
+			}
+			if (first != null) throw first;
+			return total;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Plays one game on both factories.
+	 *
+	 * @param seed the seed of the game
+	 * @param maxPlies the most plies to play
+	 * @return the number of plies played
+	 * @throws DivergenceException if the factories disagree
+	 */
+	public int play(long seed, int maxPlies) {
+		final Random random = new Random(seed);
+		final GameSetup setup;
+		final Player mrX;
+		final ImmutableList<Player> detectives;
+		if (random.nextInt(3) == 0) {
+			setup = standard;
+			mrX = new Player(MRX, ScotlandYard.defaultMrXTickets(), ScotlandYard.generateMrXLocation(random.nextInt()));
+			detectives = detectives(random, 5, ignored -> ScotlandYard.defaultDetectiveTickets());
+		} else {
+			final var rounds = ImmutableList.<Boolean>builder();
+			for (int i = 1 + random.nextInt(24); i > 0; i--) rounds.add(random.nextInt(3) == 0);
+			setup = new GameSetup(standard.graph, rounds.build());
+			mrX = new Player(MRX, ImmutableMap.of(
+					Ticket.TAXI, random.nextInt(5), Ticket.BUS, random.nextInt(4),
+					Ticket.UNDERGROUND, random.nextInt(3), Ticket.DOUBLE, random.nextInt(3),
+					Ticket.SECRET, random.nextInt(4)), ScotlandYard.generateMrXLocation(random.nextInt()));
+			detectives = detectives(random, 1 + random.nextInt(5), r -> ImmutableMap.of(
+					Ticket.TAXI, r.nextInt(8), Ticket.BUS, r.nextInt(5), Ticket.UNDERGROUND, r.nextInt(3),
+					Ticket.DOUBLE, 0, Ticket.SECRET, 0));
+		}
+
+		GameState expected = null;
+		GameState actual = null;
+		RuntimeException expectedError = null;
+		RuntimeException actualError = null;
+		try { expected = reference.build(setup, mrX, detectives); } catch (IllegalArgumentException e) { expectedError = e; }
+		try { actual = candidate.build(setup, mrX, detectives); } catch (IllegalArgumentException e) { actualError = e; }
+		if ((expectedError == null) != (actualError == null))
+			throw new DivergenceException(seed, 0, "build threw " + actualError + ", expected " + expectedError);
+		if (expected == null) return 0;
+
+		int ply = 0;
+		while (true) {
+			compare(seed, ply, expected, actual);
+			if (ply == maxPlies || !expected.getWinner().isEmpty()) return ply;
+			final ImmutableList<Move> moves = expected.getAvailableMoves().asList();
+			for (int i = 0; i < PROBES; i++) {
+				final Move probe = perturb(moves.get(random.nextInt(moves.size())), random);
+				final boolean accepted = accepts(expected, probe);
+				if (accepted != accepts(actual, probe))
+					throw new DivergenceException(seed, ply, probe + (accepted ? " rejected" : " accepted")
+							+ ", expected otherwise");
+			}
+			final Move move = moves.get(random.nextInt(moves.size()));
+			try {
+				expected = expected.advance(move);
+			} catch (IllegalArgumentException e) {
+				// same-ticket doubles are offered to MrX holding one of that ticket, then refused
+				if (accepts(actual, move)) throw new DivergenceException(seed, ply, move + " accepted, expected " + e);
+				return ply;
+			}
+			try {
+				actual = actual.advance(move);
+			} catch (IllegalArgumentException e) {
+				throw new DivergenceException(seed, ply, move + " refused with " + e);
+			}
+			ply++;
+		}
+	}
+
+	private static ImmutableList<Player> detectives(Random random, int count,
+	                                                Function<Random, ImmutableMap<Ticket, Integer>> tickets) {
+		final var locations = ScotlandYard.generateDetectiveLocations(random.nextInt(), count);
+		final var detectives = ImmutableList.<Player>builder();
+		for (int i = 0; i < count; i++) detectives.add(new Player(DETECTIVES[i], tickets.apply(random), locations.get(i)));
+		return detectives.build();
+	}
+
+	private static boolean accepts(GameState state, Move move) {
+		try {
+			state.advance(move);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/*
+		An available move with one thing about it changed, which is usually but not always enough
+		to make it unavailable
+	*/
+	private static Move perturb(Move move, Random random) {
+		return move.visit(new Move.Visitor<>() {
+			@Override public Move visit(SingleMove m) {
+				switch (random.nextInt(4)) {
+					case 0: return new SingleMove(m.commencedBy(), m.source(), ticket(random), m.destination);
+					case 1: return new SingleMove(m.commencedBy(), m.source(), m.ticket, m.destination + random.nextInt(5) - 2);
+					case 2: return new SingleMove(ScotlandYard.ALL_PIECES.get(random.nextInt(ScotlandYard.ALL_PIECES.size())), m.source(), m.ticket, m.destination);
+					default: return new DoubleMove(m.commencedBy(), m.source(), m.ticket, m.destination, ticket(random), m.destination + 1);
+				}
+			}
+			@Override public Move visit(DoubleMove m) {
+				switch (random.nextInt(3)) {
+					case 0: return new DoubleMove(m.commencedBy(), m.source(), ticket(random), m.destination1, m.ticket2, m.destination2);
+					case 1: return new DoubleMove(m.commencedBy(), m.source(), m.ticket1, m.destination1, ticket(random), m.destination2);
+					default: return new DoubleMove(m.commencedBy(), m.source(), m.ticket1, m.destination1, m.ticket2, m.destination2 + 1);
+				}
+			}
+		});
+	}
+
+	private static Ticket ticket(Random random) { return TICKETS[random.nextInt(TICKETS.length)]; }
+
+	private static void compare(long seed, int ply, GameState expected, GameState actual) {
+		if (!expected.getWinner().equals(actual.getWinner()))
+			throw new DivergenceException(seed, ply, "winner " + actual.getWinner() + ", expected " + expected.getWinner());
+		if (!expected.getAvailableMoves().equals(actual.getAvailableMoves()))
+			throw new DivergenceException(seed, ply, "available moves differ by "
+					+ Sets.symmetricDifference(expected.getAvailableMoves(), actual.getAvailableMoves()));
+		if (!expected.getMrXTravelLog().equals(actual.getMrXTravelLog()))
+			throw new DivergenceException(seed, ply, "travel log " + actual.getMrXTravelLog()
+					+ ", expected " + expected.getMrXTravelLog());
+		if (!expected.getPlayers().equals(actual.getPlayers()))
+			throw new DivergenceException(seed, ply, "players " + actual.getPlayers() + ", expected " + expected.getPlayers());
+		for (Piece piece : expected.getPlayers()) {
+			final Board.TicketBoard expectedTickets = expected.getPlayerTickets(piece).orElseThrow();
+			final Board.TicketBoard actualTickets = actual.getPlayerTickets(piece).orElseThrow(() ->
+					new DivergenceException(seed, ply, "no tickets for " + piece));
+			for (Ticket ticket : TICKETS) {
+				if (expectedTickets.getCount(ticket) != actualTickets.getCount(ticket))
+					throw new DivergenceException(seed, ply, piece + " has " + actualTickets.getCount(ticket) + " "
+							+ ticket + ", expected " + expectedTickets.getCount(ticket));
+			}
+			if (piece.isDetective() && !expected.getDetectiveLocation((Detective) piece)
+					.equals(actual.getDetectiveLocation((Detective) piece)))
+				throw new DivergenceException(seed, ply, piece + " at " + actual.getDetectiveLocation((Detective) piece)
+						+ ", expected " + expected.getDetectiveLocation((Detective) piece));
+		}
+		if (expected instanceof HashedBoard && actual instanceof HashedBoard
+				&& ((HashedBoard) expected).positionKey() != ((HashedBoard) actual).positionKey())
+			throw new DivergenceException(seed, ply, "position key differs");
+	}
+}
@@ -0,0 +1,13 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+/**
+ * A {@link Board} carrying a 64-bit key of its position, for use in transposition tables or to
+ * deduplicate states. Boards in the same position always have the same key; see {@link Zobrist}
+ * for what makes up a position.
+ */
+public interface HashedBoard extends Board {
+	/**
+	 * @return the Zobrist key of this board's position
+	 */
+	long positionKey();
+}
@@ -5,8 +5,10 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 import java.io.Serializable;
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
 
@@ -21,7 +23,7 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
  * This class isn't really intended for use with the cw-model part but if you can justify the use
  * then feel free to include it.
  */
-public final class ImmutableBoard implements Board, Serializable {
+public final class ImmutableBoard implements HashedBoard, Serializable {
 	private static final long serialVersionUID = -7495825440220065823L;
 
 	private final GameSetup setup;
@@ -30,6 +32,7 @@ public final class ImmutableBoard implements Board, Serializable {
 	private final ImmutableList<LogEntry> mrXTravelLog;
 	private final ImmutableSet<Piece> winner;
 	private final ImmutableSet<Move> availableMoves;
+	private final long positionKey;
 
 	public ImmutableBoard(GameSetup setup,
 	                      ImmutableMap<Detective, Integer> detectiveLocations,
@@ -43,6 +46,30 @@ public final class ImmutableBoard implements Board, Serializable {
 		this.mrXTravelLog = Objects.requireNonNull(mrXTravelLog);
 		this.winner = Objects.requireNonNull(winner);
 		this.availableMoves = Objects.requireNonNull(availableMoves);
+		this.positionKey = computePositionKey();
+	}
+
+	/**
+	 * Computes the key from what the board shows. MrX's location and the pieces to move are taken
+	 * from the available moves, so the key matches the game state it was made from whenever MrX is
+	 * to move.
+	 */
+	private long computePositionKey() {
+		long key = Zobrist.round(mrXTravelLog.size());
+		for (var entry : tickets.entrySet()) {
+			for (Ticket ticket : Ticket.values())
+				key ^= Zobrist.tickets(entry.getKey(), ticket, entry.getValue().getOrDefault(ticket, 0));
+		}
+		for (var entry : detectiveLocations.entrySet())
+			key ^= Zobrist.location(entry.getKey(), entry.getValue());
+		Set<Piece> toMove = new HashSet<>();
+		for (Move move : availableMoves) {
+			if (toMove.add(move.commencedBy())) {
+				key ^= Zobrist.toMove(move.commencedBy());
+				if (move.commencedBy().isMrX()) key ^= Zobrist.location(move.commencedBy(), move.source());
+			}
+		}
+		return key;
 	}
 
 	@Nonnull @Override public GameSetup getSetup() { return setup; }
@@ -57,4 +84,5 @@ public final class ImmutableBoard implements Board, Serializable {
 	@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() { return mrXTravelLog; }
 	@Nonnull @Override public ImmutableSet<Piece> getWinner() { return winner; }
 	@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() { return availableMoves; }
+	@Override public long positionKey() { return positionKey; }
 }
@@ -18,6 +18,7 @@ public final class LogEntry implements Serializable {
 	private static final long serialVersionUID = -6468835796153329259L;
 	// because Java's stupid Optional isn't intend to be used as a field...
 	private static final int HIDDEN = -1;
+	private static final Ticket[] TICKETS = Ticket.values();
 	private final Ticket ticket;
 	private final int location;
 	/**
@@ -49,6 +50,28 @@ public final class LogEntry implements Serializable {
 	public Optional<Integer> location() {
 		return location == HIDDEN ? Optional.empty() : Optional.of(location);
 	}
+	/**
+	 * Packs a log entry into an int, as (location + 1) &lt;&lt; 3 | ticket ordinal, so a hidden
+	 * entry has no location bits at all. Equal entries encode to the same value.
+	 *
+	 * @param ticket the ticket used
+	 * @param location MrX's location, or -1 for a hidden round
+	 * @return the packed entry
+	 */
+	public static int encode(@Nonnull Ticket ticket, int location) {
+		return (location + 1) << 3 | ticket.ordinal();
+	}
+	/**
+	 * @param entry an entry packed by {@link #encode(Ticket, int)}
+	 * @return the log entry
+	 */
+	@Nonnull public static LogEntry decode(int entry) {
+		return new LogEntry(TICKETS[entry & 0x7], (entry >>> 3) - 1);
+	}
+	/**
+	 * @return this entry packed as by {@link #encode(Ticket, int)}
+	 */
+	public int encode() { return encode(ticket, location); }
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
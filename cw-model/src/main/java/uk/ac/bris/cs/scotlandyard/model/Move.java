@@ -88,6 +88,7 @@ public interface Move extends Serializable {
 		 * The destination
 		 */
 		public final int destination;
+		private transient int hash; // cached like String's, 0 until first asked for
 		public SingleMove(@Nonnull Piece piece, int source,
 		                  @Nonnull Ticket ticket, int destination) {
 			this.piece = Objects.requireNonNull(piece);
@@ -106,7 +107,11 @@ public interface Move extends Serializable {
 			return source == that.source && destination == that.destination &&
 					piece == that.piece && ticket == that.ticket;
 		}
-		@Override public int hashCode() { return Objects.hash(piece, ticket, destination); }
+		@Override public int hashCode() {
+			int h = hash;
+			if (h == 0) hash = h = Objects.hash(piece, ticket, destination);
+			return h;
+		}
 		@Override public String toString() {
 			return ticket.name() + "(" + piece + "@" + source + ", " + destination + ")";
 		}
@@ -135,6 +140,7 @@ public interface Move extends Serializable {
 		 * The second destination
 		 */
 		public final int destination2;
+		private transient int hash; // cached like String's, 0 until first asked for
 		public DoubleMove(@Nonnull Piece piece, int source,
 		                  @Nonnull Ticket ticket1, int destination1,
 		                  @Nonnull Ticket ticket2, int destination2) {
@@ -159,7 +165,9 @@ public interface Move extends Serializable {
 					ticket2 == that.ticket2 && destination2 == that.destination2;
 		}
 		@Override public int hashCode() {
-			return Objects.hash(piece, ticket1, destination1, ticket2, destination2);
+			int h = hash;
+			if (h == 0) hash = h = Objects.hash(piece, ticket1, destination1, ticket2, destination2);
+			return h;
 		}
 		@Override public String toString() {
 			return "x2(" + piece + "@" + source + ", " + ticket1 + ", " + destination1 + ", " + ticket2 + ", " + destination2 + ")";
@@ -0,0 +1,94 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A growable list of moves packed as described in {@link PackedMove}, backed by a {@code long[]}.
+ * Clearing keeps the array, so a list reused across a search stops allocating once it has grown
+ * to the largest move count seen.
+ */
+public final class MoveList {
+
+	private long[] moves;
+	private int size;
+
+	public MoveList() { this(64); }
+
+	/**
+	 * @param capacity how many moves fit before the list has to grow
+	 */
+	public MoveList(int capacity) { this.moves = new long[Math.max(1, capacity)]; }
+
+	/**
+	 * @return the number of moves in the list
+	 */
+	public int size() { return size; }
+
+	public boolean isEmpty() { return size == 0; }
+
+	/**
+	 * Empties the list, keeping its capacity
+	 */
+	public void clear() { size = 0; }
+
+	/**
+	 * @param move a packed move
+	 */
+	public void add(long move) {
+		if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+		moves[size++] = move;
+	}
+
+	/**
+	 * @param move the move to pack and add
+	 */
+	public void add(@Nonnull Move move) { add(PackedMove.encode(move)); }
+
+	/**
+	 * @param index from 0 up to {@link #size()}
+	 * @return the packed move at that index
+	 */
+	public long get(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+		return moves[index];
+	}
+
+	/**
+	 * @param move a packed move
+	 * @return whether the list holds the move
+	 */
+	public boolean contains(long move) {
+		for (int i = 0; i < size; i++) {
+			if (moves[i] == move) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the moves unpacked, in list order
+	 */
+	@Nonnull public ImmutableList<Move> toMoves() {
+		final var builder = ImmutableList.<Move>builderWithExpectedSize(size);
+		for (int i = 0; i < size; i++) builder.add(PackedMove.decode(moves[i]));
+		return builder.build();
+	}
+
+	/**
+	 * @param pool the pool of the graph the moves are on
+	 * @return the moves unpacked as pooled instances, in list order
+	 */
+	@Nonnull public ImmutableList<Move> toMoves(@Nonnull MovePool pool) {
+		final var builder = ImmutableList.<Move>builderWithExpectedSize(size);
+		for (int i = 0; i < size; i++) builder.add(PackedMove.decode(moves[i], pool));
+		return builder.build();
+	}
+
+	/**
+	 * @return a copy of the packed moves
+	 */
+	@Nonnull public long[] toArray() { return Arrays.copyOf(moves, size); }
+}
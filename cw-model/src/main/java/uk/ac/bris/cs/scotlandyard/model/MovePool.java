@@ -0,0 +1,137 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import com.google.common.graph.ImmutableValueGraph;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+/**
+ * Canonical {@link SingleMove} and {@link DoubleMove} instances for one graph. Moves can only go
+ * along edges of the graph, so the set of moves is small and fixed, and handing out the same
+ * instance every time saves allocating it on every state. It also makes equality checks in hash
+ * sets and maps hit the identity fast path. Every move is hashed once when it is pooled.
+ * <br>
+ * Single moves are keyed by piece, edge and ticket and double moves, which only MrX makes, by
+ * both edges and tickets; edges are numbered as in {@link CompactGraph}. Slots are filled on first
+ * use. Threads racing for the same slot may each get an equal copy, which is harmless. Moves
+ * not along the graph's edges are created as usual and not pooled.
+ * <br>
+ * Pools are kept for as long as the graph they were made for, like {@link CompactGraph}s; a pool
+ * only refers to the compact graph, never to the graph it is kept for.
+ */
+public final class MovePool {
+
+	private static final ConcurrentMap<ImmutableValueGraph<Integer, ImmutableSet<Transport>>, MovePool>
+			POOLS = new MapMaker().weakKeys().makeMap(); // weak keys compare by identity
+	private static final int TICKETS = Ticket.values().length;
+
+	private final CompactGraph graph;
+	// indexed by (piece * edges + edge) * TICKETS + ticket
+	private final SingleMove[] singles;
+	// indexed by edge1 * TICKETS + ticket1, then by the second edge's place among the edges
+	// leaving destination1 times TICKETS plus ticket2
+	private final DoubleMove[][] doubles;
+
+	private MovePool(CompactGraph graph) {
+		this.graph = graph;
+		final int edges = graph.edgeCount();
+		this.singles = new SingleMove[ScotlandYard.ALL_PIECES.size() * edges * TICKETS];
+		this.doubles = new DoubleMove[edges * TICKETS][];
+	}
+
+	/**
+	 * @param setup the game setup
+	 * @return the move pool of the setup's graph, created on first use
+	 */
+	@Nonnull public static MovePool of(@Nonnull GameSetup setup) {
+		return POOLS.computeIfAbsent(Objects.requireNonNull(setup).graph, graph -> new MovePool(CompactGraph.of(graph)));
+	}
+
+	/**
+	 * @param piece the piece moving
+	 * @param source where the piece moves from
+	 * @param edge the {@link CompactGraph} edge taken, which must leave source
+	 * @param ticket the ticket used
+	 * @return the pooled single move
+	 */
+	@Nonnull public SingleMove single(@Nonnull Piece piece, int source, int edge, @Nonnull Ticket ticket) {
+		final int slot = (PackedMove.pieceCode(piece) * graph.edgeCount() + edge) * TICKETS + ticket.ordinal();
+		SingleMove move = singles[slot];
+		if (move == null) {
+			move = new SingleMove(piece, source, ticket, graph.target(edge));
+			move.hashCode();
+			singles[slot] = move;
+		}
+		return move;
+	}
+
+	/**
+	 * @param piece the piece moving
+	 * @param source where the piece moves from
+	 * @param ticket the ticket used
+	 * @param destination where the piece moves to
+	 * @return the pooled single move, or a new one if the nodes aren't adjacent
+	 */
+	@Nonnull public SingleMove single(@Nonnull Piece piece, int source,
+	                                  @Nonnull Ticket ticket, int destination) {
+		final int edge = graph.edge(source, destination);
+		if (edge < 0) return new SingleMove(piece, source, ticket, destination);
+		return single(piece, source, edge, ticket);
+	}
+
+	/**
+	 * @param piece the piece moving, MrX
+	 * @param source where the piece moves from
+	 * @param edge1 the {@link CompactGraph} edge taken first, which must leave source
+	 * @param ticket1 the first ticket used
+	 * @param edge2 the edge taken second, which must leave the first edge's target
+	 * @param ticket2 the second ticket used
+	 * @return the pooled double move, or a new one if the piece isn't MrX
+	 */
+	@Nonnull public DoubleMove doubleMove(@Nonnull Piece piece, int source,
+	                                      int edge1, @Nonnull Ticket ticket1,
+	                                      int edge2, @Nonnull Ticket ticket2) {
+		final int destination1 = graph.target(edge1);
+		if (!piece.isMrX()) return new DoubleMove(piece, source, ticket1, destination1, ticket2, graph.target(edge2));
+		final int first = edge1 * TICKETS + ticket1.ordinal();
+		DoubleMove[] seconds = doubles[first];
+		if (seconds == null) doubles[first] = seconds = new DoubleMove[graph.degree(destination1) * TICKETS];
+		final int slot = (edge2 - graph.start(destination1)) * TICKETS + ticket2.ordinal();
+		DoubleMove move = seconds[slot];
+		if (move == null) {
+			move = new DoubleMove(piece, source, ticket1, destination1, ticket2, graph.target(edge2));
+			move.hashCode();
+			seconds[slot] = move;
+		}
+		return move;
+	}
+
+	/**
+	 * @param piece the piece moving, MrX
+	 * @param source where the piece moves from
+	 * @param ticket1 the first ticket used
+	 * @param destination1 where the piece moves to first
+	 * @param ticket2 the second ticket used
+	 * @param destination2 where the piece ends up
+	 * @return the pooled double move, or a new one if the piece isn't MrX or the nodes aren't
+	 * adjacent
+	 */
+	@Nonnull public DoubleMove doubleMove(@Nonnull Piece piece, int source,
+	                                      @Nonnull Ticket ticket1, int destination1,
+	                                      @Nonnull Ticket ticket2, int destination2) {
+		final int edge1 = graph.edge(source, destination1);
+		final int edge2 = graph.edge(destination1, destination2);
+		if (edge1 < 0 || edge2 < 0)
+			return new DoubleMove(piece, source, ticket1, destination1, ticket2, destination2);
+		return doubleMove(piece, source, edge1, ticket1, edge2, ticket2);
+	}
+}
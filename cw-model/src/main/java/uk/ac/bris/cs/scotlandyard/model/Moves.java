@@ -1,153 +1,167 @@
 package uk.ac.bris.cs.scotlandyard.model;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
 import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
 import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
-import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
 
 import static uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory.numberOfRoundsLeft;
-import static uk.ac.bris.cs.scotlandyard.model.MyGameStateFactory.remainingDetectives;
 
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
 
 /*
     Helper methods to make various moves, perform checks on who should make the move and returns the moves
 */
 public class Moves {
 
+    private static final Ticket[] TICKETS = Ticket.values();
+
     protected static ImmutableSet<Move.SingleMove> makeSingleMoves(final GameSetup setup,
-                                                                   final List<Player> detectives,
+                                                                   final Occupancy occupied,
                                                                    final Player player,
                                                                    final int source) {
         // Creates all possible single moves from the source node
         final var singleMoves = new ArrayList<Move.SingleMove>();
-        for (int destination : setup.graph.adjacentNodes(source)) {
-            var occupied = false;
-            for (Player detective : detectives)	{
-                if (detective.location() == destination) {
-                    occupied = true;
-                    break;
+        final CompactGraph graph = CompactGraph.of(setup);
+        final MovePool pool = MovePool.of(setup);
+        final boolean secret = player.isMrX() && player.has(Ticket.SECRET);
+        for (int edge = graph.start(source), end = graph.end(source); edge < end; edge++) {
+            final int destination = graph.target(edge);
+            if (occupied.contains(destination)) continue;
+            final int tickets = CompactGraph.requiredTickets(graph.transports(edge));
+            for (Ticket ticket : TICKETS) {
+                if ((tickets & (1 << ticket.ordinal())) != 0 && player.has(ticket)) {
+                    singleMoves.add(pool.single(player.piece(), source, edge, ticket));
                 }
             }
-            if (occupied) continue;
-            for (Transport t : Objects.requireNonNull(setup.graph
-                    .edgeValueOrDefault(source, destination, ImmutableSet.of()))) {
-                if (player.has(t.requiredTicket())) {
-                    singleMoves.add(new SingleMove(player.piece(), source, t.requiredTicket(), destination));
-                }
-                if (player.has(Ticket.SECRET) && player.isMrX()) {
-                    singleMoves.add(new SingleMove(player.piece(), source, Ticket.SECRET, destination));
-                }
+            if (secret && tickets != 0) {
+                singleMoves.add(pool.single(player.piece(), source, edge, Ticket.SECRET));
             }
         }
         return ImmutableSet.copyOf(singleMoves);
     }
 
     protected static ImmutableSet<DoubleMove> makeDoubleMove(final GameSetup setup,
-                                                             final List<Player> detectives,
+                                                             final Occupancy occupied,
                                                              final Player player,
                                                              final int source) {
         // Creates all possible double moves from the source node
-        final var doubleMove = new ArrayList<Move.DoubleMove>();
-        for (int firstDestination : setup.graph.adjacentNodes(source)) {
-            var occupied = false;
-            for (Player detective : detectives) {
-                if (detective.location() == firstDestination) {
-                    occupied = true;
-                    break;
+        final var doubleMove = ImmutableSet.<DoubleMove>builder();
+        final CompactGraph graph = CompactGraph.of(setup);
+        final MovePool pool = MovePool.of(setup);
+        final int[] secondHops = new int[maxDegree(graph, source) * TICKETS.length];
+        for (int edge = graph.start(source), end = graph.end(source); edge < end; edge++) {
+            final int firstDestination = graph.target(edge);
+            if (occupied.contains(firstDestination)) continue;
+            // tickets mrX can take the first hop with; a secret ticket works along any edge
+            int firstTickets = 0;
+            final int tickets = CompactGraph.requiredTickets(graph.transports(edge));
+            for (Ticket ticket : TICKETS) {
+                if ((tickets & (1 << ticket.ordinal())) != 0 && player.has(ticket)) {
+                    firstTickets |= 1 << ticket.ordinal();
                 }
             }
-            if (occupied) continue;
-            for (Transport t : Objects.requireNonNull(setup.graph
-                    .edgeValueOrDefault(source, firstDestination, ImmutableSet.of()))) {
-                if (player.has(t.requiredTicket())) {
-                    ImmutableSet<SingleMove> singleMoveSet = (makeSingleMoves
-                            (setup, detectives, player, firstDestination));
-                    for (SingleMove move : singleMoveSet) {
-                        boolean valid = true;
-                        // ensures mrX has enough tickets if he wants to do a double move
-                        if ((t.requiredTicket() == move.ticket)
-                                && !(player.hasAtLeast(move.ticket, 2))) valid = false;
-                        if (valid) doubleMove.add(new DoubleMove(player.piece(), source,
-                                t.requiredTicket(), firstDestination, move.ticket, move.destination));
-                    }
+            if (player.has(Ticket.SECRET)) firstTickets |= 1 << Ticket.SECRET.ordinal();
+            if (firstTickets == 0) continue;
+
+            // the second hops only depend on where the first one lands, so it is expanded once
+            // for all the first tickets
+            final int hops = addSecondHops(secondHops, graph, occupied, player, firstDestination);
+            for (Ticket ticket : TICKETS) {
+                if ((firstTickets & (1 << ticket.ordinal())) == 0) continue;
+                // ensures mrX has enough tickets if he wants to use the same ticket twice,
+                // two secret hops are always allowed
+                final boolean once = ticket != Ticket.SECRET && !player.hasAtLeast(ticket, 2);
+                for (int i = 0; i < hops; i++) {
+                    final Ticket second = TICKETS[secondHops[i] % TICKETS.length];
+                    if (once && second == ticket) continue;
+                    doubleMove.add(pool.doubleMove(player.piece(), source,
+                            edge, ticket, secondHops[i] / TICKETS.length, second));
                 }
             }
-            //generate double moves with a secret ticket
-            if (player.has(Ticket.SECRET)) {
-                ImmutableSet<SingleMove> singleMoveSet = (makeSingleMoves(setup,
-                        detectives, player, firstDestination));
-                for (SingleMove move : singleMoveSet) {
-                    doubleMove.add(new Move.DoubleMove(player.piece(), source,
-                            Ticket.SECRET, firstDestination, move.ticket, move.destination));
+        }
+        return doubleMove.build();
+    }
+
+    /*
+        Fills hops with the single moves from the node as edge * TICKETS + ticket ordinal, the
+        same moves makeSingleMoves makes, and returns how many there are
+    */
+    private static int addSecondHops(final int[] hops,
+                                     final CompactGraph graph,
+                                     final Occupancy occupied,
+                                     final Player player,
+                                     final int node) {
+        int hopCount = 0;
+        final boolean secret = player.has(Ticket.SECRET);
+        for (int edge = graph.start(node), end = graph.end(node); edge < end; edge++) {
+            if (occupied.contains(graph.target(edge))) continue;
+            final int tickets = CompactGraph.requiredTickets(graph.transports(edge));
+            for (Ticket ticket : TICKETS) {
+                if ((tickets & (1 << ticket.ordinal())) != 0 && player.has(ticket)) {
+                    hops[hopCount++] = edge * TICKETS.length + ticket.ordinal();
                 }
             }
+            if (secret && tickets != 0) hops[hopCount++] = edge * TICKETS.length + Ticket.SECRET.ordinal();
         }
-        return ImmutableSet.copyOf(doubleMove);
+        return hopCount;
+    }
+
+    private static int maxDegree(final CompactGraph graph, final int source) {
+        int degree = 0;
+        for (int edge = graph.start(source), end = graph.end(source); edge < end; edge++) {
+            degree = Math.max(degree, graph.degree(graph.target(edge)));
+        }
+        return degree;
     }
     /*
-        Returns all of the detective moves, given a list of detectives
+        Returns all of the detective's moves, given the nodes the detectives stand on
     */
     protected static ImmutableSet<Move> getDetectiveMoves(final GameSetup setup,
-                                                          final List<Player> detectives,
+                                                          final Occupancy occupied,
                                                           final Player d) {
-        ImmutableSet<SingleMove> singleMoveSet = (makeSingleMoves(setup, detectives, d, d.location()));
-        List<SingleMove> singleMoves = new ArrayList<>(singleMoveSet);
-
-        return ImmutableSet.<Move>builder().addAll(singleMoves).build();
+        return ImmutableSet.copyOf(makeSingleMoves(setup, occupied, d, d.location()));
     }
     /*
-       Only returns detective moves for detectives in remaining set
+        Adjusts a detective's moves after another detective has moved from vacated to occupied,
+        the detective's own location and tickets being unchanged
     */
-    protected static List<Move> getRemainingDetectivesMovesList(final GameSetup setup,
-                                                                final List<Player> detectives,
-                                                                final ImmutableSet<Piece> remaining,
-                                                                final Piece piece) {
-        List<Move> detectiveMoves = new ArrayList<>();
-        if (piece.isDetective()) {
-            List<Player> remainingDetectiveList;
-            remainingDetectiveList = remainingDetectives(remaining, detectives);
+    protected static ImmutableSet<Move> updateDetectiveMoves(final GameSetup setup,
+                                                             final Player d,
+                                                             final ImmutableSet<Move> previousMoves,
+                                                             final int vacated,
+                                                             final int occupied) {
+        final CompactGraph graph = CompactGraph.of(setup);
+        final boolean losesDestination = graph.hasEdge(d.location(), occupied);
+        final int gainedTickets = CompactGraph.requiredTickets(graph.transportsBetween(d.location(), vacated));
+        final boolean gainsDestination = gainedTickets != 0;
+        if (!losesDestination && !gainsDestination) return previousMoves;
 
-            for(final var p : remainingDetectiveList) {
-                ImmutableSet<Move> detectiveMoveSet = getDetectiveMoves(setup, detectives, p);
-                detectiveMoves.addAll(detectiveMoveSet);
+        final var moves = ImmutableSet.<Move>builder();
+        for (final Move move : previousMoves) {
+            if (getDestination(move) != occupied) moves.add(move);
+        }
+        for (Ticket ticket : TICKETS) {
+            if ((gainedTickets & (1 << ticket.ordinal())) != 0 && d.has(ticket)) {
+                moves.add(MovePool.of(setup).single(d.piece(), d.location(), ticket, vacated));
             }
         }
-        return detectiveMoves;
+        return moves.build();
     }
 
     protected static ImmutableSet<Move> getMrXMoves(final GameSetup setup,
-                                                    final List<Player> detectives,
+                                                    final Occupancy occupied,
                                                     final Player mrX,
-                                                    final ImmutableList<LogEntry> log) {
+                                                    final TravelLog log) {
         // Returns an individual list of only mrX's possible moves including double moves
-        List<DoubleMove> doubleMoves = new ArrayList<>();
-        ImmutableSet<SingleMove> singleMoveSet = (makeSingleMoves(setup, detectives, mrX, mrX.location()));
-        List<SingleMove> singleMoves = new ArrayList<>(singleMoveSet);
+        final var moves = ImmutableSet.<Move>builder()
+                .addAll(makeSingleMoves(setup, occupied, mrX, mrX.location()));
         if (mrX.has(Ticket.DOUBLE) && (numberOfRoundsLeft(setup, log) > 1)) {
-            ImmutableSet<Move.DoubleMove> doubleMoveSet = (makeDoubleMove(setup,
-                    detectives, mrX, mrX.location()));
-            doubleMoves.addAll(doubleMoveSet);
+            moves.addAll(makeDoubleMove(setup, occupied, mrX, mrX.location()));
         }
-        return ImmutableSet.<Move>builder().addAll(singleMoves).addAll(doubleMoves).build();
+        return moves.build();
     }
-    /*
-        if remaining detectives all don't have tickets or piece selected is mrX, mrX moves are returned
-    */
-    protected static List<Move> checkIfAllDetectivesStillHaveTickets(final ImmutableSet<Move> mrXMoves,
-                                                                     final boolean b) {
-        List<Move> newMoves = new ArrayList<>();
-        if(b) {
-            newMoves.addAll(mrXMoves);
-        }
-        return newMoves;
-    }
-
     protected static boolean isDoubleMove(final Move move) {
         // Checks a move to see if its a double move
         return move.visit(new Move.Visitor<>() {
@@ -161,4 +175,18 @@ public class Moves {
             }
         });
     }
+
+    protected static int getDestination(final Move move) {
+        // Returns where the piece ends up after the move
+        return move.visit(new Move.Visitor<>() {
+            @Override
+            public Integer visit(SingleMove move1) {
+                return move1.destination;
+            }
+            @Override
+            public Integer visit(DoubleMove move1) {
+                return move1.destination2;
+            }
+        });
+    }
 }
@@ -3,7 +3,6 @@ package uk.ac.bris.cs.scotlandyard.model;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
 import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
 import uk.ac.bris.cs.scotlandyard.model.Board.TicketBoard;
 import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
@@ -29,41 +28,56 @@ import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
  */
 public final class MyGameStateFactory implements Factory<GameState> {
 
-	private static final class MyGameState implements GameState {
+	private static final class MyGameState implements TrustedGameState, HashedBoard {
 		private final GameSetup setup;
-		private ImmutableSet<Piece> remaining;
-		private ImmutableList<LogEntry> log;
-		private Player mrX;
-		private List<Player> detectives;
-		private ImmutableSet<Move> moves;
-		private ImmutableSet<Piece> winner;
-		private final Ticket[] mrXFirstTicket = new Ticket[1];
+		private final int remaining; // one bit per piece to move, see bit(Piece)
+		private final TravelLog log;
+		private final Player mrX;
+		private final List<Player> detectives;
+		private final Occupancy occupied; // where the detectives stand
+		private final long positionKey;
+		// moves and winner are only worked out when first asked for, guarded by this
+		private ImmutableMap<Piece, ImmutableSet<Move>> previousMoves;
+		private ImmutableMap<Piece, ImmutableSet<Move>> detectiveMoves;
+		private volatile ImmutableSet<Move> moves;
+		private volatile ImmutableSet<Piece> winner;
 
 		private MyGameState(final GameSetup setup,
-							final ImmutableSet<Piece> remaining,
-							final ImmutableList<LogEntry> log,
+							final int remaining,
+							final TravelLog log,
 							final Player mrX,
-							final List<Player> detectives) {
+							final List<Player> detectives,
+							final Occupancy occupied,
+							final ImmutableMap<Piece, ImmutableSet<Move>> previousMoves,
+							final long positionKey) {
 			this.setup = setup;
 			this.remaining = remaining;
 			this.log = log;
 			this.mrX = mrX;
 			this.detectives = detectives;
-			winner = ImmutableSet.<Piece>builder().build();
-			gameProcess(setup, remaining, getMrXMoves(setup, detectives, mrX, log), detectives);
+			this.occupied = occupied;
+			this.previousMoves = previousMoves;
+			this.positionKey = positionKey;
 		}
 		/*
-			stages from initialising the game to selecting a winner
+			moves of the side that is actually to move, before checking whether the game is over
 		*/
-		private void gameProcess(final GameSetup setup,
-								 final ImmutableSet<Piece> remaining,
-								 final ImmutableSet<Move> mrXMoves,
-								 final List<Player> detectives) {
-			checkExceptionsDuringInitialisation(setup, detectives);
-			//for each remaining, moves field is updated to consist of all possible moves by each piece
-			remaining.forEach(piece -> updateMovesField(setup, remaining,
-					mrXMoves, detectives, piece));
-			checkWinner();
+		private ImmutableSet<Move> gameProcess() {
+			ImmutableSet<Move> result = moves;
+			if (result == null) {
+				synchronized (this) {
+					if (moves == null) {
+						final List<Player> remainingDetectives = remainingDetectives(remaining, detectives);
+						if ((remaining & bit(mrX.piece())) != 0 || remainingDetectives.isEmpty()) {
+							detectiveMoves = ImmutableMap.of();
+							moves = getMrXMoves(setup, occupied, mrX, log);
+						} else updateMovesField(remainingDetectives);
+						previousMoves = null;
+					}
+					result = moves;
+				}
+			}
+			return result;
 		}
 
 		@Nonnull
@@ -83,44 +97,61 @@ public final class MyGameStateFactory implements Factory<GameState> {
 		}
 		@Nonnull
 		@Override public final Optional<TicketBoard> getPlayerTickets(final Piece piece) {
-			if(piece.isMrX()) return Optional.of(new StoreTickets(mrX.tickets()));
+			if(piece.isMrX()) return Optional.of(new StoreTickets(mrX));
 			for(final var p : detectives) {
-				if (p.piece().equals(piece)) return Optional.of(new StoreTickets(p.tickets()));
+				if (p.piece().equals(piece)) return Optional.of(new StoreTickets(p));
 			}
 			return Optional.empty();
 		}
 		@Nonnull
-		@Override public final ImmutableList<LogEntry> getMrXTravelLog() { return log; }
+		@Override public final ImmutableList<LogEntry> getMrXTravelLog() { return log.entries(); }
 		@Nonnull
-		@Override public final ImmutableSet<Piece> getWinner() { return winner; }
+		@Override public final ImmutableSet<Piece> getWinner() {
+			ImmutableSet<Piece> result = winner;
+			if (result == null) {
+				synchronized (this) {
+					if (winner == null) winner = checkWinner();
+					result = winner;
+				}
+			}
+			return result;
+		}
 		@Nonnull
-		@Override public final ImmutableSet<Move> getAvailableMoves() { return moves; }
+		@Override public final ImmutableSet<Move> getAvailableMoves() {
+			return getWinner().isEmpty() ? gameProcess() : ImmutableSet.of();
+		}
+		@Override public final long positionKey() { return positionKey; }
 		@Override public final GameState advance(final Move move) {
-			if (winner.isEmpty()) {
-				final List<Piece> det = this.detectives.stream().map(Player::piece).collect(Collectors.toList());
-				// Checks move given if it's possible
-				if (!getAvailableMoves().contains(move)) throw new IllegalArgumentException("Illegal move: " + move);
-				remaining.forEach(p -> moveAPiece(move, det, p));
-				if (remaining.isEmpty()) remaining = ImmutableSet.<Piece>builder().add(mrX.piece()).build();
-			}
-			return new MyGameState(setup, remaining, log, mrX, detectives);
+			if (!getWinner().isEmpty()) return this;
+			// Checks move given if it's possible
+			if (!getAvailableMoves().contains(move)) throw new IllegalArgumentException("Illegal move: " + move);
+			return advanceTrusted(move);
+		}
+		@Nonnull
+		@Override public final TrustedGameState advanceTrusted(final Move move) {
+			// MrX may be handed the turn while detectives that ran out of tickets are still
+			// remaining; such a move leaves the game as it is
+			if ((remaining & bit(move.commencedBy())) == 0) return this;
+			if (move.commencedBy().isMrX()) return moveMrX(move);
+			return moveDetective(move);
 		}
 
-		private void updateMovesField(final GameSetup setup,
-									  final ImmutableSet<Piece> remaining,
-									  final ImmutableSet<Move> mrXMoves1,
-									  final List<Player> detectives,
-									  final Piece piece) {
-			// Creates movesSet for detectives and mrX if are remaining
-			final List<Move> detectiveMoves = getRemainingDetectivesMovesList(setup, detectives, remaining, piece);
-			final List<Move> mrXMoves = checkIfAllDetectivesStillHaveTickets(mrXMoves1,
-					remainingDetectives(remaining, detectives).isEmpty() || piece.isMrX());
-
-			moves = ImmutableSet.<Move>builder().addAll(detectiveMoves).addAll(mrXMoves).build();
+		private void updateMovesField(final List<Player> remainingDetectives) {
+			// Reuses each remaining detective's moves from the previous state where there are any
+			final var detectiveMovesBuilder = ImmutableMap.<Piece, ImmutableSet<Move>>builder();
+			final var movesBuilder = ImmutableSet.<Move>builder();
+			for (final Player d : remainingDetectives) {
+				ImmutableSet<Move> dMoves = previousMoves.get(d.piece());
+				if (dMoves == null) dMoves = getDetectiveMoves(setup, occupied, d);
+				detectiveMovesBuilder.put(d.piece(), dMoves);
+				movesBuilder.addAll(dMoves);
+			}
+			detectiveMoves = detectiveMovesBuilder.build();
+			moves = movesBuilder.build();
 		}
 
 		private Ticket getMoveTicket(final Move move) {
-			// Returns the move's corresponding ticket using double dispatch
+			// Returns the move's final ticket using double dispatch
 			return move.visit(new Visitor<>() {
 				@Override
 				public Ticket visit(SingleMove move1) {
@@ -128,38 +159,62 @@ public final class MyGameStateFactory implements Factory<GameState> {
 				}
 				@Override
 				public Ticket visit(DoubleMove move1) {
-					mrXFirstTicket[0] = move1.ticket1;
 					return move1.ticket2;
 				}
 			});
 		}
 
-		private void moveAPiece(final Move move, final List<Piece> detectives2, final Piece p) {
-			if (move.commencedBy().equals(p) && p.isMrX()) moveMrX(move, detectives2, p);
-			else if (move.commencedBy().equals(p) && p.isDetective())
-				detectives.forEach(d -> moveDetective(move, p, d));
-		}
-
-		private void moveDetective(final Move move, final Piece p, Player d) {
-				if (move.commencedBy().equals(d.piece())) {
-					final List<Player> newDetectives = new ArrayList<>(List.copyOf(detectives));
-					int indexOf = newDetectives.indexOf(d);
-					d = changePlayerLocation(d, move);
+		private TrustedGameState moveDetective(final Move move) {
+			final List<Player> newDetectives = new ArrayList<>(detectives);
+			Player d = null;
+			long moverKey = 0;
+			int vacated = 0;
+			for (int i = 0; i < newDetectives.size(); i++) {
+				if (move.commencedBy().equals(newDetectives.get(i).piece())) {
+					vacated = newDetectives.get(i).location();
+					moverKey = Zobrist.player(newDetectives.get(i));
+					d = changePlayerLocation(newDetectives.get(i), move);
 					d = changeTicketNumber(d, move);
-					newDetectives.set(indexOf, d);
-					detectives = ImmutableList.<Player>builder().addAll(newDetectives).build();
+					newDetectives.set(i, d);
 				}
-			remaining = Sets.difference(remaining, ImmutableSet.of(p)).immutableCopy();
+			}
+			int newRemaining = remaining & ~bit(move.commencedBy());
+			if (newRemaining == 0) newRemaining = bit(mrX.piece());
+			final Player newMrX = mrX.give(move.tickets());
+
+			// Only the mover, MrX's tickets and whose turn it is change
+			long newKey = positionKey ^ Zobrist.toMove(move.commencedBy()) ^ moverKey
+					^ Zobrist.player(Objects.requireNonNull(d)) ^ Zobrist.player(mrX) ^ Zobrist.player(newMrX);
+			if ((newRemaining & bit(mrX.piece())) != 0) newKey ^= Zobrist.toMove(mrX.piece());
+
+			// Only destinations next to the vacated and the newly occupied node can change for
+			// the detectives still to move; nothing is reused if this state's moves were never asked for
+			final var currentMoves = moves == null ? ImmutableMap.<Piece, ImmutableSet<Move>>of() : detectiveMoves;
+			final var reusedMoves = ImmutableMap.<Piece, ImmutableSet<Move>>builder();
+			for (final Player other : newDetectives) {
+				final ImmutableSet<Move> previous = currentMoves.get(other.piece());
+				if (other == d || previous == null || (newRemaining & bit(other.piece())) == 0) continue;
+				reusedMoves.put(other.piece(), updateDetectiveMoves(setup, other, previous,
+						vacated, d.location()));
+			}
+			return new MyGameState(setup, newRemaining, log, newMrX,
+					ImmutableList.copyOf(newDetectives), occupied.moved(vacated, d.location()),
+					reusedMoves.build(), newKey);
 		}
 
-		private void moveMrX(final Move move, final List<Piece> detectives2, final Piece p) {
-			mrX = changePlayerLocation(mrX, move);
-			mrX = changeTicketNumber(mrX, move);
-			final Ticket mrXTicket = getMoveTicket(move);
-			remaining = Sets.difference(remaining, ImmutableSet.of(p)).immutableCopy();
-			if (remaining.isEmpty()) remaining = ImmutableSet.<Piece>builder().addAll(detectives2).build();
+		private TrustedGameState moveMrX(final Move move) {
+			Player newMrX = changePlayerLocation(mrX, move);
+			newMrX = changeTicketNumber(newMrX, move);
+			int newRemaining = 0;
+			for (final Player d : detectives) newRemaining |= bit(d.piece());
+
+			final TravelLog newLog = logUpdate(move, getMoveTicket(move), newMrX);
 
-			logUpdate(move, mrXTicket);
+			long newKey = positionKey ^ Zobrist.player(mrX) ^ Zobrist.player(newMrX) ^ Zobrist.toMove(mrX.piece())
+					^ Zobrist.round(log.size()) ^ Zobrist.round(newLog.size());
+			for (final Player d : detectives) newKey ^= Zobrist.toMove(d.piece());
+			return new MyGameState(setup, newRemaining, newLog, newMrX, detectives, occupied,
+					ImmutableMap.of(), newKey);
 		}
 
 		private Player changePlayerLocation(Player player, final Move move) {
@@ -179,79 +234,70 @@ public final class MyGameStateFactory implements Factory<GameState> {
 			return player;
 		}
 
-		private Player changeTicketNumber(Player player, final Move move) {
-			// Updates tickets accordingly from the given move
-			final Ticket ticket = getMoveTicket(move);
-			player = player.use(ticket);
-			if (player.isMrX() && isDoubleMove(move)) {
-				player = player.use(mrXFirstTicket[0]);
-				player = player.use(Ticket.DOUBLE);
-			}
-			if(player.isDetective()) mrX = mrX.give(ticket);
-
-			return player;
+		private Player changeTicketNumber(final Player player, final Move move) {
+			// Updates tickets accordingly from the given move, including the double ticket
+			return player.use(move.tickets());
 		}
 
-		private void logUpdate(final Move move, final Ticket mrXTicket) {
-			final List<LogEntry> newLog = new ArrayList<>(List.copyOf(log));
-
-			if (setup.rounds.get(log.size())) newLog.add(LogEntry.reveal(mrXTicket, mrX.location()));
-			else newLog.add(LogEntry.hidden(mrXTicket));
+		private TravelLog logUpdate(final Move move, final Ticket mrXTicket, final Player newMrX) {
+			// Appending shares the existing entries rather than copying them
+			TravelLog newLog = log.append(mrXTicket, setup.rounds.get(log.size()) ? newMrX.location() : -1);
 			if (isDoubleMove(move)) {
-				if (setup.rounds.get(log.size() + 1)) newLog
-						.add(LogEntry.reveal(mrXTicket, mrX.location()));
-				else newLog.add(LogEntry.hidden(mrXTicket));
+				newLog = newLog.append(mrXTicket, setup.rounds.get(log.size() + 1) ? newMrX.location() : -1);
 			}
-			log = ImmutableList.<LogEntry>builder().addAll(newLog).build();
+			return newLog;
 		}
 
-		private void checkWinner() {
+		private ImmutableSet<Piece> checkWinner() {
 			final List<Piece> playerThatWon = new ArrayList<>();
 			final List<Player> d = new ArrayList<>();
 
             for(final var j : detectives) {
-                final var a = new StoreTickets(j.tickets());
-                if (a.getCount(Ticket.TAXI) == 0 && a.getCount(Ticket.UNDERGROUND) == 0 && a.getCount(Ticket.BUS) == 0)
+                if (!j.has(Ticket.TAXI) && !j.has(Ticket.UNDERGROUND) && !j.has(Ticket.BUS))
                 	d.add(j);
             }
             if(d.size() == detectives.size()) {
 				// If all rounds are exhausted or all detectives have no tickets left, mrx automatically wins
                 playerThatWon.add(mrX.piece());
-                moves = ImmutableSet.<Move>builder().build();
             }
-            else if (numberOfRoundsLeft(setup, log) == 0 && remaining.contains(mrX.piece())) {
+            else if (numberOfRoundsLeft(setup, log) == 0 && (remaining & bit(mrX.piece())) != 0) {
             	playerThatWon.add(mrX.piece());
-            	moves = ImmutableSet.<Move>builder().build();
 			}
-			else if (detectives.stream().map(Player::location).anyMatch(x -> x == mrX.location())) {
+			else if (occupied.contains(mrX.location())) {
 				playerThatWon.addAll(detectives.stream().map(Player::piece).collect(Collectors.toList()));
-				moves = ImmutableSet.<Move>builder().build();
 			}
-			else if (moves.isEmpty()) {
+			else if (gameProcess().isEmpty()) {
 				playerThatWon.addAll(detectives.stream().map(Player::piece).collect(Collectors.toList()));
 			}
-			if (winner.isEmpty() && !playerThatWon.isEmpty()) {
-				winner = ImmutableSet.<Piece>builder().addAll(playerThatWon).build();
-			}
+			return ImmutableSet.<Piece>builder().addAll(playerThatWon).build();
         }
 
 	}
-	protected static List<Player> remainingDetectives(final ImmutableSet<Piece> remaining,
+	protected static List<Player> remainingDetectives(final int remaining,
 													  final List<Player> detectives) {
 		// Calculates the remaining number of detectives in the turn
 		final ArrayList<Player> newPlayerList = new ArrayList<>();
 		for (final Player p : detectives)	{
 			if(!(p.hasAtLeast(Ticket.TAXI, 1) || p.hasAtLeast(Ticket.UNDERGROUND, 1)
 					|| p.hasAtLeast(Ticket.BUS, 1))) continue;
-			if (remaining.contains(p.piece())) newPlayerList.add(p);
+			if ((remaining & bit(p.piece())) != 0) newPlayerList.add(p);
 		}
 		return newPlayerList;
 	}
 
 	private static void checkExceptionsDuringInitialisation(final GameSetup setup,
+															final Player mrX,
 															final List<Player> detectives)
 			throws IllegalArgumentException {
 
+		// Moves are only generated when first asked for, so players off the graph are caught here
+		if (!setup.graph.nodes().contains(mrX.location()))
+			throw new IllegalArgumentException(mrX + " is not on the graph");
+		for (final Player detective : detectives) {
+			if (!setup.graph.nodes().contains(detective.location()))
+				throw new IllegalArgumentException(detective + " is not on the graph");
+		}
+
 		// Ensures detectives don't have access to mrX's special tickets
 		for (final Player detective : detectives) {
 			if (detective.has(Ticket.SECRET) || detective.has(Ticket.DOUBLE))
@@ -275,13 +321,18 @@ public final class MyGameStateFactory implements Factory<GameState> {
 	}
 
 	private static final class StoreTickets implements TicketBoard {
-		private final ImmutableMap<Ticket, Integer> storeTickets;
+		private final Player player;
 
-		private StoreTickets(final ImmutableMap<Ticket, Integer> tickets) { storeTickets = tickets; }
-		@Override public final int getCount(@Nonnull final Ticket ticket) { return storeTickets.get(ticket); }
+		private StoreTickets(final Player player) { this.player = player; }
+		@Override public final int getCount(@Nonnull final Ticket ticket) { return player.count(ticket); }
 	}
 
-	protected static int numberOfRoundsLeft(final GameSetup setup, final ImmutableList<LogEntry> log)	{
+	/*
+		Pieces still to move are kept as a mask with this bit set for each, MrX's being 1
+	*/
+	private static int bit(final Piece piece) { return 1 << PackedMove.pieceCode(piece); }
+
+	protected static int numberOfRoundsLeft(final GameSetup setup, final TravelLog log)	{
 		return (setup.rounds.size()) - (log.size());
 	}
 
@@ -289,6 +340,10 @@ public final class MyGameStateFactory implements Factory<GameState> {
 													final Player mrX,
 													final ImmutableList<Player> detectives) {
 
-		return new MyGameState(setup, ImmutableSet.of(MRX), ImmutableList.of(), mrX, detectives);
+		checkExceptionsDuringInitialisation(setup, mrX, detectives);
+		long key = Zobrist.player(mrX) ^ Zobrist.toMove(MRX) ^ Zobrist.round(0);
+		for (final Player detective : detectives) key ^= Zobrist.player(detective);
+		return new MyGameState(setup, bit(MRX), TravelLog.empty(), mrX, detectives,
+				Occupancy.of(CompactGraph.of(setup), detectives), ImmutableMap.of(), key);
 	}
 }
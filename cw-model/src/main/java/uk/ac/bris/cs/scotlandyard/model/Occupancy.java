@@ -0,0 +1,51 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The set of nodes detectives stand on, as a bitset indexed by node, so asking whether a node is
+ * occupied costs the same however many detectives there are. Instances are immutable; moving a
+ * detective copies the few words of the set.
+ */
+final class Occupancy {
+
+	private final long[] words;
+
+	private Occupancy(long[] words) { this.words = words; }
+
+	/**
+	 * @param graph the graph the detectives are on
+	 * @param detectives the detectives
+	 * @return the nodes the detectives stand on
+	 */
+	@Nonnull static Occupancy of(@Nonnull CompactGraph graph, @Nonnull Iterable<Player> detectives) {
+		final long[] words = new long[(graph.nodeBound() + 63) >>> 6];
+		for (Player detective : detectives) set(words, detective.location());
+		return new Occupancy(words);
+	}
+
+	/**
+	 * @param node the node
+	 * @return whether a detective stands on the node
+	 */
+	boolean contains(int node) {
+		final int word = node >>> 6;
+		return word < words.length && (words[word] & 1L << node) != 0;
+	}
+
+	/**
+	 * @param from the node a detective leaves
+	 * @param to the node the detective moves to
+	 * @return the occupancy after the move
+	 */
+	@Nonnull Occupancy moved(int from, int to) {
+		final long[] next = Arrays.copyOf(words, Math.max(words.length, (to >>> 6) + 1));
+		next[from >>> 6] &= ~(1L << from);
+		set(next, to);
+		return new Occupancy(next);
+	}
+
+	private static void set(long[] words, int node) { words[node >>> 6] |= 1L << node; }
+}
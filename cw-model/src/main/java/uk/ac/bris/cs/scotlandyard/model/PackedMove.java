@@ -0,0 +1,128 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.FunctionalVisitor;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.Visitor;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Encodes a {@link Move} as a single {@code long}, for search code that keeps moves in primitive
+ * arrays such as {@link MoveList}. The bits are laid out as:
+ * <pre>
+ *  0-2   piece: 0 for MrX, 1 + ordinal for a detective ({@link ScotlandYard#ALL_PIECES} order)
+ *  3     set for a double move
+ *  4-6   first ticket ordinal
+ *  7-9   second ticket ordinal, 0 for a single move
+ *  16-31 source
+ *  32-47 first destination, the only one for a single move
+ *  48-63 second destination, 0 for a single move
+ * </pre>
+ * Nodes have to fit in 16 bits. Equal moves always encode to the same value and the encoding
+ * doesn't depend on the graph, so packed moves can be compared and stored like any other
+ * {@code long}.
+ */
+public final class PackedMove {
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final long DOUBLE_BIT = 1 << 3;
+	private static final int NODE_MASK = 0xFFFF;
+
+	private static final Visitor<SingleMove> AS_SINGLE = new FunctionalVisitor<>(m -> m, m -> null);
+	private static final Visitor<DoubleMove> AS_DOUBLE = new FunctionalVisitor<>(m -> null, m -> m);
+
+	private PackedMove() {}
+
+	/**
+	 * @param piece a piece code as in the bit layout
+	 * @param source the source
+	 * @param ticket the ticket
+	 * @param destination the destination
+	 * @return the packed single move
+	 */
+	public static long single(int piece, int source, @Nonnull Ticket ticket, int destination) {
+		return piece | (long) ticket.ordinal() << 4 | (long) node(source) << 16 | (long) node(destination) << 32;
+	}
+
+	/**
+	 * @param source the source
+	 * @param ticket1 the first ticket
+	 * @param destination1 the first destination
+	 * @param ticket2 the second ticket
+	 * @param destination2 the second destination
+	 * @return the packed double move by MrX
+	 */
+	public static long doubleMove(int source, @Nonnull Ticket ticket1, int destination1,
+	                              @Nonnull Ticket ticket2, int destination2) {
+		return DOUBLE_BIT | (long) ticket1.ordinal() << 4 | (long) ticket2.ordinal() << 7
+				| (long) node(source) << 16 | (long) node(destination1) << 32
+				| (long) node(destination2) << 48;
+	}
+
+	/**
+	 * @param move the move
+	 * @return the packed move
+	 * @throws IllegalArgumentException if a node doesn't fit in 16 bits
+	 */
+	public static long encode(@Nonnull Move move) {
+		final SingleMove single = move.visit(AS_SINGLE);
+		if (single != null) return single(pieceCode(single.commencedBy()), single.source(), single.ticket, single.destination);
+		final DoubleMove x2 = move.visit(AS_DOUBLE);
+		return doubleMove(x2.source(), x2.ticket1, x2.destination1, x2.ticket2, x2.destination2)
+				| pieceCode(x2.commencedBy());
+	}
+
+	/**
+	 * @param move a packed move
+	 * @return the move as a {@link Move}
+	 */
+	@Nonnull public static Move decode(long move) {
+		if (isDouble(move)) return new DoubleMove(piece(move), source(move),
+				ticket1(move), destination1(move), ticket2(move), destination2(move));
+		return new SingleMove(piece(move), source(move), ticket1(move), destination1(move));
+	}
+
+	/**
+	 * @param move a packed move
+	 * @param pool the pool of the graph the move is on
+	 * @return the move as the pooled {@link Move}
+	 */
+	@Nonnull public static Move decode(long move, @Nonnull MovePool pool) {
+		if (isDouble(move)) return pool.doubleMove(piece(move), source(move),
+				ticket1(move), destination1(move), ticket2(move), destination2(move));
+		return pool.single(piece(move), source(move), ticket1(move), destination1(move));
+	}
+
+	/**
+	 * @param piece the piece
+	 * @return the piece's code as in the bit layout
+	 */
+	public static int pieceCode(@Nonnull Piece piece) {
+		return piece.isMrX() ? 0 : 1 + ((Detective) piece).ordinal();
+	}
+
+	public static int pieceCode(long move) { return (int) (move & 0x7); }
+	@Nonnull public static Piece piece(long move) { return ScotlandYard.ALL_PIECES.get(pieceCode(move)); }
+	public static boolean isDouble(long move) { return (move & DOUBLE_BIT) != 0; }
+	@Nonnull public static Ticket ticket1(long move) { return TICKETS[(int) (move >>> 4 & 0x7)]; }
+	@Nonnull public static Ticket ticket2(long move) { return TICKETS[(int) (move >>> 7 & 0x7)]; }
+	public static int source(long move) { return (int) (move >>> 16) & NODE_MASK; }
+	public static int destination1(long move) { return (int) (move >>> 32) & NODE_MASK; }
+	public static int destination2(long move) { return (int) (move >>> 48) & NODE_MASK; }
+
+	/**
+	 * @param move a packed move
+	 * @return where the piece ends up
+	 */
+	public static int destination(long move) {
+		return isDouble(move) ? destination2(move) : destination1(move);
+	}
+
+	private static int node(int node) {
+		if ((node & ~NODE_MASK) != 0) throw new IllegalArgumentException("Node " + node + " doesn't fit in 16 bits");
+		return node;
+	}
+}
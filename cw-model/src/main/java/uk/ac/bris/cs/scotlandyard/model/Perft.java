@@ -0,0 +1,137 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+/**
+ * Move path enumeration, after the perft of chess engines: counts the positions reached by
+ * playing every line of moves from a position to a fixed depth. A ply is one
+ * {@link GameState#advance(Move)}, so MrX's move, double or not, is one ply and each detective's
+ * move is one more; turns pass and reveal rounds come round exactly as in play. A game that is won
+ * before the depth is reached has no moves left and adds nothing to the count.
+ * <br>
+ * The counts depend on nothing but the rules, so two move generators agreeing on them for many
+ * positions and depths is good evidence that they generate the same moves, and how long counting
+ * takes gives a raw nodes-per-second figure for the generator and {@code advance}. The last ply is
+ * counted rather than played, as chess engines do. Reference counts for the standard starting
+ * positions are kept in {@code PerftTest}.
+ * <br>
+ * The factories offer MrX doubles taking two SECRET hops when he holds only one SECRET ticket, and
+ * {@code advance} then refuses them. Such a move leads nowhere, so it is left out of the counts,
+ * which is what {@link SearchBoard}, not generating it, counts too.
+ */
+public final class Perft {
+
+	private Perft() {}
+
+	/**
+	 * @param state the position to count from
+	 * @param depth the number of plies to play, 0 or more
+	 * @return the number of positions at the given depth
+	 * @throws IllegalArgumentException if the depth is negative
+	 */
+	public static long perft(@Nonnull GameState state, int depth) {
+		if (depth < 0) throw new IllegalArgumentException("Negative depth " + depth);
+		if (depth == 0) return 1;
+		long count = 0;
+		for (Move move : state.getAvailableMoves()) {
+			if (!playable(state, move)) continue;
+			count += depth == 1 ? 1 : perft(state.advance(move), depth - 1);
+		}
+		return count;
+	}
+
+	/*
+		Whether advance accepts the move, which isn't so for a double needing two of a ticket MrX
+		only holds one of
+	*/
+	private static boolean playable(GameState state, Move move) {
+		if (!(move instanceof Move.DoubleMove)) return true;
+		final Move.DoubleMove x2 = (Move.DoubleMove) move;
+		return x2.ticket1 != x2.ticket2
+				|| state.getPlayerTickets(x2.commencedBy()).orElseThrow().getCount(x2.ticket1) > 1;
+	}
+
+	/**
+	 * Counts as {@link #perft(GameState, int)} does, but by making and unmaking packed moves on the
+	 * board, which allocates nothing once the move lists have grown. The board is left as it was.
+	 *
+	 * @param board the position to count from
+	 * @param depth the number of plies to play, 0 or more
+	 * @return the number of positions at the given depth
+	 * @throws IllegalArgumentException if the depth is negative
+	 */
+	public static long perft(@Nonnull SearchBoard board, int depth) {
+		if (depth < 0) throw new IllegalArgumentException("Negative depth " + depth);
+		final MoveList[] lists = new MoveList[depth];
+		for (int i = 0; i < depth; i++) lists[i] = new MoveList();
+		return perft(board, depth, lists);
+	}
+
+	private static long perft(SearchBoard board, int depth, MoveList[] lists) {
+		if (depth == 0) return 1;
+		if (!board.getWinner().isEmpty()) return 0;
+		final MoveList moves = lists[depth - 1];
+		moves.clear();
+		board.generateMoves(moves);
+		if (depth == 1) return moves.size();
+		long count = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			board.make(moves.get(i));
+			try {
+				count += perft(board, depth - 1, lists);
+			} finally {
+				board.unmake();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the positions below each move of the given position separately, with the moves shared
+	 * out between threads. The counts add up to {@link #perft(GameState, int)}; when two generators
+	 * disagree, they show which move the difference is under. Moves {@code advance} refuses are
+	 * left out, as they are of the count.
+	 *
+	 * @param state the position to count from
+	 * @param depth the number of plies to play, 1 or more, the first being the move itself
+	 * @param parallelism the number of threads to count on
+	 * @return the count below each move, in the order of {@link GameState#getAvailableMoves()}
+	 * @throws IllegalArgumentException if the depth is less than 1 or parallelism less than 1
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	@Nonnull public static ImmutableMap<Move, Long> divide(@Nonnull GameState state, int depth, int parallelism)
+			throws InterruptedException {
+		if (depth < 1) throw new IllegalArgumentException("Depth " + depth + " has no moves to divide");
+		if (parallelism < 1) throw new IllegalArgumentException("Parallelism " + parallelism + " is less than 1");
+		final ImmutableList<Move> moves = state.getAvailableMoves().stream()
+				.filter(move -> playable(state, move)).collect(ImmutableList.toImmutableList());
+		final List<Callable<Long>> tasks = new ArrayList<>(moves.size());
+		for (Move move : moves) tasks.add(() -> perft(state.advance(move), depth - 1));
+		final ExecutorService executor = Executors.newWorkStealingPool(parallelism);
+		try {
+			final List<Future<Long>> counts = executor.invokeAll(tasks);
+			final var builder = ImmutableMap.<Move, Long>builderWithExpectedSize(moves.size());
+			for (int i = 0; i < moves.size(); i++) builder.put(moves.get(i), counts.get(i).get());
+			return builder.build();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error) throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
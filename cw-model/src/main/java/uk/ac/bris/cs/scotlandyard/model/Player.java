@@ -2,7 +2,7 @@ package uk.ac.bris.cs.scotlandyard.model;
 
 import com.google.common.collect.ImmutableMap;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Objects;
 
 import javax.annotation.Nonnull;
@@ -12,11 +12,20 @@ import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
 /**
  * A POJO representing an immutable player of the ScotlandYard game.
  * Each player contains the {@link Piece} (coloured counter), {@link Ticket}s, and the location.
+ * <br>
+ * Ticket counts are kept in an array indexed by {@link Ticket} ordinal, so checking a ticket is an
+ * array read and using or giving tickets copies the array once. A player only ever holds the
+ * kinds of ticket it was created with: giving a ticket it has no entry for does nothing, as does
+ * {@link #tickets()} listing only those kinds.
  */
 public final class Player {
+	private static final Ticket[] TICKETS = Ticket.values();
+
 	private final Piece piece;
-	private final ImmutableMap<Ticket, Integer> tickets;
+	private final int[] counts;
+	private final int kinds; // one bit per ticket ordinal the player has an entry for
 	private final int location;
+	private ImmutableMap<Ticket, Integer> tickets; // built on first use, races are harmless
 
 	public Player(@Nonnull Piece piece,
 	              @Nonnull ImmutableMap<Ticket, Integer> tickets,
@@ -24,6 +33,20 @@ public final class Player {
 		this.piece = Objects.requireNonNull(piece);
 		this.tickets = Objects.requireNonNull(tickets);
 		this.location = location;
+		this.counts = new int[TICKETS.length];
+		int kinds = 0;
+		for (var entry : tickets.entrySet()) {
+			counts[entry.getKey().ordinal()] = entry.getValue();
+			kinds |= 1 << entry.getKey().ordinal();
+		}
+		this.kinds = kinds;
+	}
+	private Player(Piece piece, int[] counts, int kinds, int location, ImmutableMap<Ticket, Integer> tickets) {
+		this.piece = piece;
+		this.counts = counts;
+		this.kinds = kinds;
+		this.location = location;
+		this.tickets = tickets;
 	}
 	/**
 	 * @return the piece
@@ -40,26 +63,37 @@ public final class Player {
 	/**
 	 * @return the ticket
 	 */
-	@Nonnull public ImmutableMap<Ticket, Integer> tickets() { return tickets; }
+	@Nonnull public ImmutableMap<Ticket, Integer> tickets() {
+		ImmutableMap<Ticket, Integer> result = tickets;
+		if (result == null) {
+			final var builder = ImmutableMap.<Ticket, Integer>builderWithExpectedSize(Integer.bitCount(kinds));
+			for (Ticket ticket : TICKETS) {
+				if ((kinds & (1 << ticket.ordinal())) != 0) builder.put(ticket, counts[ticket.ordinal()]);
+			}
+			tickets = result = builder.build();
+		}
+		return result;
+	}
 	/**
 	 * @return the location
 	 */
 	public int location() { return location; }
+	/**
+	 * @param ticket the ticket
+	 * @return how many of the given ticket the player has
+	 */
+	public int count(@Nonnull Ticket ticket) { return counts[ticket.ordinal()]; }
 	/**
 	 * @param ticket the ticket
 	 * @return whether the player has the given ticket
 	 */
-	public boolean has(@Nonnull Ticket ticket) {
-		return tickets.getOrDefault(Objects.requireNonNull(ticket), 0) != 0;
-	}
+	public boolean has(@Nonnull Ticket ticket) { return counts[ticket.ordinal()] != 0; }
 	/**
 	 * @param ticket the ticket
 	 * @param count the required count
 	 * @return whether the player has &gt;= the required numbers of the given ticket
 	 */
-	public boolean hasAtLeast(@Nonnull Ticket ticket, int count) {
-		return tickets.getOrDefault(Objects.requireNonNull(ticket), 0) >= count;
-	}
+	public boolean hasAtLeast(@Nonnull Ticket ticket, int count) { return counts[ticket.ordinal()] >= count; }
 	/**
 	 * See {@link #give(Ticket)}
 	 *
@@ -67,29 +101,34 @@ public final class Player {
 	 * @return a new player with one more of the given tickets
 	 */
 	@Nonnull public Player give(@Nonnull Iterable<Ticket> tickets) {
-		var x = this;
-		for (Ticket t : tickets) x = x.give(t);
-		return x;
+		final int[] given = counts.clone();
+		for (Ticket t : tickets) given[t.ordinal()] += kinds >>> t.ordinal() & 1;
+		return new Player(piece, given, kinds, location, null);
 	}
 	/**
 	 * @param ticket the ticket
 	 * @return a new player with one more of the given ticket
 	 */
 	@Nonnull public Player give(@Nonnull Ticket ticket) {
-		var map = new HashMap<>(tickets);
-		map.computeIfPresent(ticket, (t, n) -> n + 1);
-		return new Player(piece, ImmutableMap.copyOf(map), location);
+		final int[] given = counts.clone();
+		given[ticket.ordinal()] += kinds >>> ticket.ordinal() & 1;
+		return new Player(piece, given, kinds, location, null);
 	}
 	/**
 	 * See {@link #use(Ticket)}
 	 *
 	 * @param tickets the tickets
 	 * @return a new player with one less of the given tickets
+	 * @throws IllegalArgumentException if the player runs out of one of the tickets
 	 */
 	@Nonnull public Player use(@Nonnull Iterable<Ticket> tickets) {
-		var x = this;
-		for (Ticket t : tickets) x = x.use(t);
-		return x;
+		final int[] used = counts.clone();
+		for (Ticket t : tickets) {
+			if (used[t.ordinal()] == 0)
+				throw new IllegalArgumentException("No " + t + " remaining");
+			used[t.ordinal()]--;
+		}
+		return new Player(piece, used, kinds, location, null);
 	}
 	/**
 	 * @param ticket the ticket
@@ -98,22 +137,22 @@ public final class Player {
 	@Nonnull public Player use(@Nonnull Ticket ticket) {
 		if (!has(ticket))
 			throw new IllegalArgumentException("No " + ticket + " remaining");
-		var map = new HashMap<>(tickets);
-		map.computeIfPresent(ticket, (t, n) -> n - 1);
-		return new Player(piece, ImmutableMap.copyOf(map), location);
+		final int[] used = counts.clone();
+		used[ticket.ordinal()]--;
+		return new Player(piece, used, kinds, location, null);
 	}
 	/**
 	 * @param newLocation the location
 	 * @return a new player at the given location
 	 */
-	@Nonnull public Player at(int newLocation) { return new Player(piece, tickets, newLocation); }
+	@Nonnull public Player at(int newLocation) { return new Player(piece, counts, kinds, newLocation, tickets); }
 	@Override public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		Player that = (Player) o;
 		return location == that.location && piece == that.piece &&
-				Objects.equals(tickets, that.tickets);
+				kinds == that.kinds && Arrays.equals(counts, that.counts);
 	}
-	@Override public int hashCode() { return Objects.hash(piece, tickets, location); }
-	@Override public String toString() { return piece + "@" + location + "(" + tickets + ")"; }
+	@Override public int hashCode() { return Objects.hash(piece, kinds, Arrays.hashCode(counts), location); }
+	@Override public String toString() { return piece + "@" + location + "(" + tickets() + ")"; }
 }
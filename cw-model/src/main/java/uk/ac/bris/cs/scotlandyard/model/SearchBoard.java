@@ -0,0 +1,515 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static uk.ac.bris.cs.scotlandyard.model.CompactGameStateFactory.MRX_BIT;
+import static uk.ac.bris.cs.scotlandyard.model.CompactGameStateFactory.STRIDE;
+
+/**
+ * A mutable board for tree search. Where {@link GameState#advance(Move)} builds a whole new state
+ * for every move, a search board is changed in place by {@link #make(Move)} and changed back by
+ * {@link #unmake()}, so searching a line of play allocates nothing but the moves generated.
+ * Generating into a reused {@link MoveList} and making the packed moves with {@link #make(long)}
+ * allocates nothing at all.
+ * <br>
+ * Moves are generated with the same rules as {@link Moves#makeSingleMoves} and
+ * {@link Moves#makeDoubleMove}, except that a double taking two SECRET hops is only generated when
+ * MrX holds two SECRET tickets, since neither {@link #make(Move)} nor
+ * {@link GameState#advance(Move)} lets him make it with one. Turns pass and games end exactly as in
+ * {@link MyGameStateFactory}. The board is laid out like {@link CompactGameStateFactory}'s states;
+ * every move made pushes one record of primitive deltas onto an undo stack. The views handed out
+ * through {@link Board} always show the current position.
+ */
+public final class SearchBoard implements HashedBoard {
+
+	private static final Ticket[] TICKETS = Ticket.values();
+	private static final int SECRET_BIT = 1 << Ticket.SECRET.ordinal();
+
+	/*
+		Each undo record is the mover's previous location, the previous remaining mask and the
+		move itself packed as mover index | ticket1 << 4 | ticket2 << 8 with 0 for no ticket and
+		ordinal + 1 otherwise, or NO_CHANGE for a move that left the board as it was
+	*/
+	private static final int RECORD = 3;
+	private static final int NO_CHANGE = -1;
+
+	private final GameSetup setup;
+	private final CompactGraph graph;
+	private final MovePool pool;
+	private final Piece[] pieces;
+	// PackedMove piece code of each board index, and board index of each code or -1
+	private final int[] codes;
+	private final int[] indexOfCode = new int[ScotlandYard.ALL_PIECES.size()];
+	private final MoveList scratch = new MoveList();
+	private final ImmutableSet<Piece> players;
+	private final ImmutableSet<Piece> mrXWins;
+	private final ImmutableSet<Piece> detectivesWin;
+	private final int[] board;
+	private final long[] occupied; // nodes the detectives stand on, one bit per node
+	private final int[] log;
+	private int logSize;
+	private int remaining;
+	private long positionKey;
+	private int[] undo = new int[RECORD * 32];
+	private long[] undoKeys = new long[32];
+	private int depth;
+
+	/**
+	 * Sets up a search board at the start of a game, as
+	 * {@link ScotlandYard.Factory#build(GameSetup, Player, ImmutableList)} would.
+	 *
+	 * @param setup the game setup
+	 * @param mrX MrX player
+	 * @param detectives detective players
+	 */
+	public SearchBoard(@Nonnull GameSetup setup,
+	                   @Nonnull Player mrX,
+	                   @Nonnull ImmutableList<Player> detectives) {
+		this.setup = Objects.requireNonNull(setup);
+		this.graph = CompactGraph.of(setup);
+		this.pool = MovePool.of(setup);
+		Objects.requireNonNull(mrX);
+		Objects.requireNonNull(detectives).forEach(Objects::requireNonNull);
+		CompactGameStateFactory.checkPlayers(setup, mrX, detectives);
+
+		this.pieces = new Piece[1 + detectives.size()];
+		this.board = new int[pieces.length * STRIDE];
+		for (int i = 0; i < pieces.length; i++) {
+			final Player player = i == 0 ? mrX : detectives.get(i - 1);
+			pieces[i] = player.piece();
+			board[i * STRIDE] = player.location();
+			for (Ticket ticket : TICKETS)
+				board[i * STRIDE + 1 + ticket.ordinal()] = player.count(ticket);
+		}
+		this.codes = indexCodes();
+		this.occupied = occupancy();
+		this.players = ImmutableSet.copyOf(pieces);
+		this.mrXWins = ImmutableSet.of(pieces[0]);
+		this.detectivesWin = players.stream().filter(Piece::isDetective).collect(ImmutableSet.toImmutableSet());
+		this.log = new int[setup.rounds.size()];
+		this.remaining = MRX_BIT;
+		this.positionKey = computePositionKey();
+	}
+
+	/**
+	 * Sets up a search board from a board, as seen by an AI. MrX's location isn't part of a board,
+	 * so it has to be given; the pieces still to move are taken from the board's available moves.
+	 *
+	 * @param board the board to copy
+	 * @param mrXLocation where MrX is, or is assumed to be
+	 */
+	public SearchBoard(@Nonnull Board board, int mrXLocation) {
+		this.setup = board.getSetup();
+		this.graph = CompactGraph.of(setup);
+		this.pool = MovePool.of(setup);
+		final List<Piece> order = new ArrayList<>();
+		for (Piece piece : board.getPlayers()) {
+			if (piece.isMrX()) order.add(0, piece);
+			else order.add(piece);
+		}
+		if (order.isEmpty() || !order.get(0).isMrX())
+			throw new IllegalArgumentException("Board has no MrX: " + board.getPlayers());
+
+		this.pieces = order.toArray(new Piece[0]);
+		this.board = new int[pieces.length * STRIDE];
+		for (int i = 0; i < pieces.length; i++) {
+			final Board.TicketBoard tickets = board.getPlayerTickets(pieces[i]).orElseThrow();
+			this.board[i * STRIDE] = i == 0 ? mrXLocation
+					: board.getDetectiveLocation((Detective) pieces[i]).orElseThrow();
+			for (Ticket ticket : TICKETS)
+				this.board[i * STRIDE + 1 + ticket.ordinal()] = tickets.getCount(ticket);
+		}
+		this.codes = indexCodes();
+		this.occupied = occupancy();
+		this.players = ImmutableSet.copyOf(pieces);
+		this.mrXWins = ImmutableSet.of(pieces[0]);
+		this.detectivesWin = players.stream().filter(Piece::isDetective).collect(ImmutableSet.toImmutableSet());
+		this.log = new int[setup.rounds.size()];
+		for (LogEntry entry : board.getMrXTravelLog())
+			log[logSize++] = entry.encode();
+		for (Move move : board.getAvailableMoves()) remaining |= 1 << indexOf(move.commencedBy());
+		if (remaining == 0) remaining = MRX_BIT;
+		this.positionKey = computePositionKey();
+	}
+
+	@Nonnull @Override public GameSetup getSetup() { return setup; }
+	@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return players; }
+	@Nonnull @Override public Optional<Integer> getDetectiveLocation(Detective detective) {
+		final int index = indexOf(detective);
+		return index > 0 ? Optional.of(location(index)) : Optional.empty();
+	}
+	@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+		final int index = indexOf(piece);
+		if (index < 0) return Optional.empty();
+		return Optional.of(ticket -> count(index, ticket));
+	}
+	@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() {
+		final var builder = ImmutableList.<LogEntry>builderWithExpectedSize(logSize);
+		for (int i = 0; i < logSize; i++) builder.add(LogEntry.decode(log[i]));
+		return builder.build();
+	}
+	@Nonnull @Override public ImmutableSet<Piece> getWinner() {
+		boolean detectivesHaveTickets = false;
+		for (int i = 1; i < pieces.length; i++) detectivesHaveTickets |= hasTravelTickets(i);
+		if (!detectivesHaveTickets) return mrXWins;
+		if (setup.rounds.size() == logSize && (remaining & MRX_BIT) != 0) return mrXWins;
+		if (occupied(location(0)) || !hasAnyMove()) return detectivesWin;
+		return ImmutableSet.of();
+	}
+	@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() {
+		if (!getWinner().isEmpty()) return ImmutableSet.of();
+		scratch.clear();
+		generateMoves(scratch);
+		final var builder = ImmutableSet.<Move>builderWithExpectedSize(scratch.size());
+		for (int i = 0; i < scratch.size(); i++) builder.add(PackedMove.decode(scratch.get(i), pool));
+		return builder.build();
+	}
+	@Override public long positionKey() { return positionKey; }
+
+	/**
+	 * @return MrX's location
+	 */
+	public int mrXLocation() { return location(0); }
+
+	/**
+	 * @return the number of moves made and not yet unmade
+	 */
+	public int depth() { return depth; }
+
+	/**
+	 * Adds the moves of the side to move to the given list as {@link Move}s, each move once, without
+	 * checking whether the game is already over. The moves are the {@link MovePool}'s instances.
+	 *
+	 * @param moves the list to add to
+	 */
+	public void generateMoves(@Nonnull List<? super Move> moves) {
+		scratch.clear();
+		generateMoves(scratch);
+		for (int i = 0; i < scratch.size(); i++) moves.add(PackedMove.decode(scratch.get(i), pool));
+	}
+
+	/**
+	 * Adds the moves of the side to move to the given list packed as in {@link PackedMove}, each
+	 * move once, without checking whether the game is already over. Nothing is allocated unless the
+	 * list has to grow, so the list can be cleared and reused between calls.
+	 *
+	 * @param moves the list to add to
+	 */
+	public void generateMoves(@Nonnull MoveList moves) {
+		if (mrXToMove()) {
+			final int source = location(0);
+			addSingleMoves(moves, 0, source);
+			if (has(0, Ticket.DOUBLE) && setup.rounds.size() - logSize > 1) addDoubleMoves(moves, source);
+		} else {
+			final int movable = movableDetectives();
+			for (int i = 1; i < pieces.length; i++) {
+				if ((movable & (1 << i)) != 0) addSingleMoves(moves, i, location(i));
+			}
+		}
+	}
+
+	/**
+	 * Makes a move on this board. The move should be one generated for the current position; like
+	 * {@link GameState#advance(Move)}, a move by MrX while only ticketless detectives are left to
+	 * move changes nothing.
+	 *
+	 * @param move the move to make
+	 * @throws IllegalArgumentException if the mover doesn't hold the tickets the move needs, in
+	 * which case the board is left as it was
+	 */
+	public void make(@Nonnull Move move) { make(PackedMove.encode(move)); }
+
+	/**
+	 * Makes a move packed as in {@link PackedMove}, as {@link #make(Move)} does.
+	 *
+	 * @param move the packed move to make
+	 * @throws IllegalArgumentException if the mover doesn't hold the tickets the move needs, in
+	 * which case the board is left as it was
+	 */
+	public void make(long move) {
+		final int index = indexOfCode[PackedMove.pieceCode(move)];
+		if (index < 0) throw new IllegalArgumentException(PackedMove.piece(move) + " is not on this board");
+		if ((remaining & (1 << index)) == 0) {
+			push(location(index), NO_CHANGE);
+			return;
+		}
+		final Ticket ticket1 = PackedMove.ticket1(move);
+		if (!PackedMove.isDouble(move)) {
+			requireTickets(index, ticket1, null);
+			push(location(index), index | (ticket1.ordinal() + 1) << 4);
+			positionKey ^= changingKey(index);
+			final int destination = PackedMove.destination1(move);
+			if (index != 0) moveOccupant(location(index), destination);
+			board[index * STRIDE] = destination;
+			board[index * STRIDE + 1 + ticket1.ordinal()]--;
+			if (index == 0) {
+				appendLog(ticket1, destination);
+				remaining = detectiveMask();
+			} else {
+				board[1 + ticket1.ordinal()]++;
+				remaining &= ~(1 << index);
+				if (remaining == 0) remaining = MRX_BIT;
+			}
+		} else {
+			if (index != 0) throw new IllegalArgumentException("Detective cannot make a Double Move: " + PackedMove.decode(move));
+			final Ticket ticket2 = PackedMove.ticket2(move);
+			final int destination = PackedMove.destination2(move);
+			requireTickets(0, ticket1, ticket2);
+			push(location(0), (ticket1.ordinal() + 1) << 4 | (ticket2.ordinal() + 1) << 8);
+			positionKey ^= changingKey(0);
+			board[0] = destination;
+			board[1 + ticket1.ordinal()]--;
+			board[1 + ticket2.ordinal()]--;
+			board[1 + Ticket.DOUBLE.ordinal()]--;
+			// both entries carry the final ticket and location, as in MyGameStateFactory
+			appendLog(ticket2, destination);
+			appendLog(ticket2, destination);
+			remaining = detectiveMask();
+		}
+		positionKey ^= changingKey(index);
+	}
+
+	/**
+	 * Takes back the last move made.
+	 *
+	 * @throws IllegalStateException if no move is left to take back
+	 */
+	public void unmake() {
+		if (depth == 0) throw new IllegalStateException("No move to unmake");
+		depth--;
+		final int base = depth * RECORD;
+		final int move = undo[base + 2];
+		positionKey = undoKeys[depth];
+		if (move == NO_CHANGE) return;
+		final int index = move & 0xF;
+		final int ticket1 = (move >>> 4 & 0xF) - 1;
+		final int ticket2 = (move >>> 8 & 0xF) - 1;
+		if (index != 0) moveOccupant(location(index), undo[base]);
+		board[index * STRIDE] = undo[base];
+		remaining = undo[base + 1];
+		board[index * STRIDE + 1 + ticket1]++;
+		if (index != 0) {
+			board[1 + ticket1]--;
+		} else if (ticket2 < 0) {
+			logSize--;
+		} else {
+			board[1 + ticket2]++;
+			board[1 + Ticket.DOUBLE.ordinal()]++;
+			logSize -= 2;
+		}
+	}
+
+	private void push(final int location, final int move) {
+		if (depth == undoKeys.length) {
+			undo = Arrays.copyOf(undo, undo.length * 2);
+			undoKeys = Arrays.copyOf(undoKeys, undoKeys.length * 2);
+		}
+		final int base = depth * RECORD;
+		undo[base] = location;
+		undo[base + 1] = remaining;
+		undo[base + 2] = move;
+		undoKeys[depth++] = positionKey;
+	}
+
+	private void requireTickets(final int index, final Ticket first, final Ticket second) {
+		final int needed = first == second ? 2 : 1;
+		if (count(index, first) < needed || (second != null && !has(index, second)))
+			throw new IllegalArgumentException("No " + (has(index, first) ? second : first) + " remaining");
+		if (second != null && !has(index, Ticket.DOUBLE))
+			throw new IllegalArgumentException("No DOUBLE remaining");
+	}
+
+	private void appendLog(final Ticket ticket, final int location) {
+		log[logSize] = LogEntry.encode(ticket,
+				setup.rounds.get(logSize) ? location : -1);
+		logSize++;
+	}
+
+	/*
+		Key of everything a move by the given player can change: its own location and tickets,
+		MrX's tickets, whose turn it is and the round
+	*/
+	private long changingKey(final int index) {
+		long key = playerKey(index) ^ Zobrist.round(logSize);
+		if (index != 0) key ^= playerKey(0);
+		for (int i = 0; i < pieces.length; i++) {
+			if ((remaining & (1 << i)) != 0) key ^= Zobrist.toMove(pieces[i]);
+		}
+		return key;
+	}
+
+	private long playerKey(final int index) {
+		long key = Zobrist.location(pieces[index], location(index));
+		for (Ticket ticket : TICKETS) key ^= Zobrist.tickets(pieces[index], ticket, count(index, ticket));
+		return key;
+	}
+
+	private long computePositionKey() {
+		long key = Zobrist.round(logSize);
+		for (int i = 0; i < pieces.length; i++) {
+			key ^= Zobrist.location(pieces[i], location(i));
+			for (Ticket ticket : TICKETS) key ^= Zobrist.tickets(pieces[i], ticket, count(i, ticket));
+			if ((remaining & (1 << i)) != 0) key ^= Zobrist.toMove(pieces[i]);
+		}
+		return key;
+	}
+
+	private int[] indexCodes() {
+		Arrays.fill(indexOfCode, -1);
+		final int[] codes = new int[pieces.length];
+		for (int i = 0; i < pieces.length; i++) {
+			codes[i] = PackedMove.pieceCode(pieces[i]);
+			indexOfCode[codes[i]] = i;
+		}
+		return codes;
+	}
+
+	private int indexOf(final Piece piece) {
+		for (int i = 0; i < pieces.length; i++) {
+			if (pieces[i].equals(piece)) return i;
+		}
+		return -1;
+	}
+
+	private int detectiveMask() { return ((1 << pieces.length) - 1) & ~MRX_BIT; }
+
+	private int location(final int index) { return board[index * STRIDE]; }
+
+	private int count(final int index, final Ticket ticket) {
+		return board[index * STRIDE + 1 + ticket.ordinal()];
+	}
+
+	private boolean has(final int index, final Ticket ticket) { return count(index, ticket) > 0; }
+
+	private int heldTickets(final int index) {
+		int held = 0;
+		for (final Ticket ticket : TICKETS) {
+			if (has(index, ticket)) held |= 1 << ticket.ordinal();
+		}
+		return held;
+	}
+
+	private boolean hasTravelTickets(final int index) {
+		return has(index, Ticket.TAXI) || has(index, Ticket.BUS) || has(index, Ticket.UNDERGROUND);
+	}
+
+	private long[] occupancy() {
+		// a board made elsewhere could have detectives off the graph
+		int bound = graph.nodeBound();
+		for (int i = 1; i < pieces.length; i++) bound = Math.max(bound, location(i) + 1);
+		final long[] words = new long[(bound + 63) >>> 6];
+		for (int i = 1; i < pieces.length; i++) words[location(i) >>> 6] |= 1L << location(i);
+		return words;
+	}
+
+	private boolean occupied(final int node) {
+		final int word = node >>> 6;
+		return word < occupied.length && (occupied[word] & 1L << node) != 0;
+	}
+
+	private void moveOccupant(final int from, final int to) {
+		occupied[from >>> 6] &= ~(1L << from);
+		occupied[to >>> 6] |= 1L << to;
+	}
+
+	private int movableDetectives() {
+		int mask = 0;
+		for (int i = 1; i < pieces.length; i++) {
+			if ((remaining & (1 << i)) != 0 && hasTravelTickets(i)) mask |= 1 << i;
+		}
+		return mask;
+	}
+
+	private boolean mrXToMove() { return remaining == MRX_BIT || movableDetectives() == 0; }
+
+	private boolean hasAnyMove() {
+		if (mrXToMove()) return hasSingleMove(0);
+		final int movable = movableDetectives();
+		for (int i = 1; i < pieces.length; i++) {
+			if ((movable & (1 << i)) != 0 && hasSingleMove(i)) return true;
+		}
+		return false;
+	}
+
+	private boolean hasSingleMove(final int index) {
+		final int source = location(index);
+		final boolean secret = index == 0 && has(0, Ticket.SECRET);
+		final int held = heldTickets(index);
+		for (int edge = graph.start(source), end = graph.end(source); edge < end; edge++) {
+			if (occupied(graph.target(edge))) continue;
+			final int tickets = CompactGraph.requiredTickets(graph.transports(edge));
+			if ((secret && tickets != 0) || (tickets & held) != 0) return true;
+		}
+		return false;
+	}
+
+	/*
+		Without the secret bit when MrX holds secret tickets, as his secret moves are added
+		separately along every edge
+	*/
+	private int usableTickets(final int index) {
+		final int held = heldTickets(index);
+		return index == 0 && (held & SECRET_BIT) != 0 ? held & ~SECRET_BIT : held;
+	}
+
+	private void addSingleMoves(final MoveList moves, final int index, final int source) {
+		final int piece = codes[index];
+		final boolean secret = index == 0 && has(0, Ticket.SECRET);
+		final int usable = usableTickets(index);
+		for (int edge = graph.start(source), end = graph.end(source); edge < end; edge++) {
+			if (occupied(graph.target(edge))) continue;
+			final int tickets = CompactGraph.requiredTickets(graph.transports(edge));
+			for (int bits = tickets & usable; bits != 0; bits &= bits - 1)
+				moves.add(PackedMove.single(piece, source, TICKETS[Integer.numberOfTrailingZeros(bits)], graph.target(edge)));
+			if (secret && tickets != 0) moves.add(PackedMove.single(piece, source, Ticket.SECRET, graph.target(edge)));
+		}
+	}
+
+	/*
+		Pairs every first hop with every second hop from where it lands, skipping a pair needing two
+		of a ticket MrX only has one of, secret tickets included, so that make accepts every move
+		generated
+	*/
+	private void addDoubleMoves(final MoveList moves, final int source) {
+		final boolean secret = has(0, Ticket.SECRET);
+		final int usable = usableTickets(0);
+		for (int edge = graph.start(source), end = graph.end(source); edge < end; edge++) {
+			final int first = graph.target(edge);
+			if (occupied(first)) continue;
+			final int tickets = CompactGraph.requiredTickets(graph.transports(edge));
+			for (int bits = tickets & usable; bits != 0; bits &= bits - 1)
+				addSecondHops(moves, source, edge, TICKETS[Integer.numberOfTrailingZeros(bits)]);
+			if (secret && tickets != 0) addSecondHops(moves, source, edge, Ticket.SECRET);
+		}
+	}
+
+	private void addSecondHops(final MoveList moves, final int source,
+							   final int edge1, final Ticket ticket1) {
+		final int first = graph.target(edge1);
+		final boolean secret = count(0, Ticket.SECRET) > (ticket1 == Ticket.SECRET ? 1 : 0);
+		int usable = usableTickets(0);
+		// the first hop's ticket can only be used again if MrX holds two of it
+		if (ticket1 != Ticket.SECRET && count(0, ticket1) < 2) usable &= ~(1 << ticket1.ordinal());
+		for (int edge = graph.start(first), end = graph.end(first); edge < end; edge++) {
+			final int second = graph.target(edge);
+			if (occupied(second)) continue;
+			final int tickets = CompactGraph.requiredTickets(graph.transports(edge));
+			for (int bits = tickets & usable; bits != 0; bits &= bits - 1) {
+				moves.add(PackedMove.doubleMove(source, ticket1, first,
+						TICKETS[Integer.numberOfTrailingZeros(bits)], second));
+			}
+			if (secret && tickets != 0) moves.add(PackedMove.doubleMove(source, ticket1, first, Ticket.SECRET, second));
+		}
+	}
+}
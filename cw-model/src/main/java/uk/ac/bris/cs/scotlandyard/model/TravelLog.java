@@ -0,0 +1,103 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * A persistent, append-only MrX travel log. Appending makes a new log that shares every earlier
+ * entry with the log it was appended to, so it takes constant time however long the game is and
+ * the logs of a whole search tree share their common prefixes. Entries are kept packed as in
+ * {@link LogEntry#encode(Ticket, int)}.
+ * <br>
+ * {@link #entries()} gives the log as the {@link ImmutableList} that
+ * {@link Board#getMrXTravelLog()} returns; it is only built when first asked for.
+ */
+public final class TravelLog {
+
+	private static final TravelLog EMPTY = new TravelLog(null, 0, 0);
+
+	private final TravelLog previous;
+	private final int entry;
+	private final int size;
+	private ImmutableList<LogEntry> entries; // built on first use, races are harmless
+
+	private TravelLog(TravelLog previous, int entry, int size) {
+		this.previous = previous;
+		this.entry = entry;
+		this.size = size;
+		if (size == 0) this.entries = ImmutableList.of();
+	}
+
+	/**
+	 * @return the log with no entries
+	 */
+	@Nonnull public static TravelLog empty() { return EMPTY; }
+
+	/**
+	 * @param entries the entries, oldest first
+	 * @return a log holding the entries
+	 */
+	@Nonnull public static TravelLog of(@Nonnull Iterable<LogEntry> entries) {
+		TravelLog log = EMPTY;
+		for (LogEntry entry : entries) log = log.append(entry);
+		return log;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() { return size; }
+
+	/**
+	 * @param entry the entry to add
+	 * @return a new log with the entry added at the end
+	 */
+	@Nonnull public TravelLog append(@Nonnull LogEntry entry) { return append(entry.encode()); }
+
+	/**
+	 * @param ticket the ticket MrX used
+	 * @param location MrX's location, or -1 for a hidden round
+	 * @return a new log with the entry added at the end
+	 */
+	@Nonnull public TravelLog append(@Nonnull Ticket ticket, int location) {
+		return append(LogEntry.encode(ticket, location));
+	}
+
+	/**
+	 * @param entry an entry packed as in {@link LogEntry#encode(Ticket, int)}
+	 * @return a new log with the entry added at the end
+	 */
+	@Nonnull public TravelLog append(int entry) { return new TravelLog(this, entry, size + 1); }
+
+	/**
+	 * Walks back from the last entry, so reading near the end of the log is quickest.
+	 *
+	 * @param index from 0 up to {@link #size()}
+	 * @return the entry at that index, packed as in {@link LogEntry#encode(Ticket, int)}
+	 */
+	public int entry(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+		TravelLog log = this;
+		while (log.size > index + 1) log = log.previous;
+		return log.entry;
+	}
+
+	/**
+	 * @return the entries, oldest first
+	 */
+	@Nonnull public ImmutableList<LogEntry> entries() {
+		ImmutableList<LogEntry> result = entries;
+		if (result == null) {
+			final LogEntry[] decoded = new LogEntry[size];
+			for (TravelLog log = this; log.size > 0; log = log.previous)
+				decoded[log.size - 1] = LogEntry.decode(log.entry);
+			entries = result = ImmutableList.copyOf(decoded);
+		}
+		return result;
+	}
+
+	@Override public String toString() { return entries().toString(); }
+}
@@ -0,0 +1,22 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+/**
+ * A {@link GameState} that can be advanced without validating the move first. This is meant
+ * for replays and AI lines of play where every move is already known to be legal, so that
+ * intermediate states never have to generate their available moves.
+ */
+public interface TrustedGameState extends GameState {
+	/**
+	 * Same as {@link #advance(Move)} but without checking the move against
+	 * {@link #getAvailableMoves()}. The resulting state is undefined if the move was not
+	 * available or the game is already over.
+	 *
+	 * @param move a move known to be in {@link #getAvailableMoves()}
+	 * @return the game state of which the given move has been made
+	 */
+	@Nonnull TrustedGameState advanceTrusted(Move move);
+}
@@ -0,0 +1,81 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+/**
+ * Zobrist keys for ScotlandYard positions. A position is made up of features: a piece standing on
+ * a node, a piece holding a number of some ticket, a piece still to move in the current round and
+ * the round itself. Each feature has a fixed pseudo-random 64-bit key and the key of a position is
+ * the XOR of its features' keys, so a move only has to XOR out the features it changes and XOR in
+ * their replacements.
+ * <br>
+ * Feature keys are derived from the feature itself rather than drawn from a seeded table, so they
+ * are the same on every run and work for any graph or ticket count.
+ */
+public final class Zobrist {
+
+	private static final long LOCATION = 1;
+	private static final long TICKETS = 2;
+	private static final long TO_MOVE = 3;
+	private static final long ROUND = 4;
+
+	private Zobrist() {}
+
+	/**
+	 * @param piece the piece
+	 * @param node the node the piece stands on
+	 * @return the key of the piece standing on the node
+	 */
+	public static long location(@Nonnull Piece piece, int node) {
+		return key(LOCATION, piece, 0, node);
+	}
+	/**
+	 * @param piece the piece
+	 * @param ticket the ticket
+	 * @param count how many of the ticket the piece holds
+	 * @return the key of the piece holding exactly that many of the ticket
+	 */
+	public static long tickets(@Nonnull Piece piece, @Nonnull Ticket ticket, int count) {
+		return key(TICKETS, piece, ticket.ordinal() + 1, count);
+	}
+	/**
+	 * @param piece the piece
+	 * @return the key of the piece still having to move in the current round
+	 */
+	public static long toMove(@Nonnull Piece piece) {
+		return key(TO_MOVE, piece, 0, 0);
+	}
+	/**
+	 * @param round the number of entries in MrX's travel log
+	 * @return the key of the round
+	 */
+	public static long round(int round) {
+		return mix(ROUND << 56 ^ (round & 0xFFFFFFFFL));
+	}
+	/**
+	 * @param player the player
+	 * @return the combined key of the player's location and all of its ticket counts
+	 */
+	public static long player(@Nonnull Player player) {
+		long key = location(player.piece(), player.location());
+		for (Ticket ticket : Ticket.values())
+			key ^= tickets(player.piece(), ticket, player.count(ticket));
+		return key;
+	}
+
+	private static long key(long feature, Piece piece, int ticket, int value) {
+		final long pieceIndex = ScotlandYard.ALL_PIECES.indexOf(piece) + 1;
+		return mix(feature << 56 ^ pieceIndex << 48 ^ (long) ticket << 40 ^ (value & 0xFFFFFFFFL));
+	}
+
+	/*
+		SplitMix64 finaliser, turns distinct features into well spread keys
+	*/
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -15,6 +15,17 @@ import org.junit.runners.Suite;
 		GameStateDetectivesAvailableMovesTest.class,
 		GameStateMrXAvailableMovesTest.class,
 		GameStatePlayoutTest.class,
+		GameStateTrustedAdvanceTest.class,
+		GameStatePositionKeyTest.class,
+		SearchBoardTest.class,
+		CompactGraphTest.class,
+		MovePoolTest.class,
+		PackedMoveTest.class,
+		PlayerTest.class,
+		OccupancyTest.class,
+		TravelLogTest.class,
+		PerftTest.class,
+		DifferentialTest.class,
 		ModelObserverTest.class
 })
 public class AllTest {}
@@ -0,0 +1,59 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Transport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that {@link CompactGraph} describes the same graph it was built from
+ */
+public class CompactGraphTest {
+
+	@Test public void testEdgesMatchGraph() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var compact = CompactGraph.of(graph);
+		assertThat(compact.nodeCount()).isEqualTo(graph.nodes().size());
+		for (int node : graph.nodes()) {
+			assertThat(compact.contains(node)).isTrue();
+			List<Integer> targets = new ArrayList<>();
+			for (int edge = compact.start(node); edge < compact.end(node); edge++) {
+				int target = compact.target(edge);
+				targets.add(target);
+				for (Transport t : Transport.values()) {
+					assertThat(CompactGraph.has(compact.transports(edge), t))
+							.isEqualTo(graph.edgeValue(node, target).orElseThrow().contains(t));
+				}
+			}
+			assertThat(targets).containsExactlyElementsOf(graph.adjacentNodes(node));
+		}
+	}
+
+	@Test public void testNodesOffTheGraphHaveNoEdges() throws IOException {
+		var compact = CompactGraph.of(ScotlandYard.standardGraph());
+		assertThat(compact.contains(0)).isFalse();
+		assertThat(compact.degree(0)).isZero();
+		assertThat(compact.degree(-1)).isZero();
+		assertThat(compact.degree(compact.nodeBound())).isZero();
+		assertThat(compact.edge(1, 199)).isEqualTo(-1);
+	}
+
+	@Test public void testGraphIsSharedBetweenSetups() throws IOException {
+		var graph = ScotlandYard.standardGraph();
+		var first = CompactGraph.of(new GameSetup(graph, ScotlandYard.STANDARD24ROUNDS));
+		var second = CompactGraph.of(new GameSetup(graph, ScotlandYard.STANDARD24ROUNDS));
+		assertThat(first).isSameAs(second);
+	}
+
+	@Test public void testRequiredTicketsOfFerryIsSecret() {
+		int ferry = 1 << Transport.FERRY.ordinal();
+		assertThat(CompactGraph.requiredTickets(ferry)).isEqualTo(1 << Ticket.SECRET.ordinal());
+	}
+
+}
@@ -0,0 +1,69 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Differential.DivergenceException;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+/**
+ * Tests that every factory under test plays the same games as {@link MyGameStateFactory} under
+ * {@link Differential}, and that a factory that doesn't is caught
+ */
+public class DifferentialTest extends ParameterisedModelTestBase {
+
+	/*
+		Delegates to another factory's states, but never lets MrX travel by secret ticket
+	*/
+	private static final class NoSecretState implements GameState {
+		private final GameState state;
+
+		NoSecretState(GameState state) { this.state = state; }
+
+		@Nonnull @Override public GameSetup getSetup() { return state.getSetup(); }
+		@Nonnull @Override public ImmutableSet<Piece> getPlayers() { return state.getPlayers(); }
+		@Nonnull @Override public Optional<Integer> getDetectiveLocation(Detective detective) {
+			return state.getDetectiveLocation(detective);
+		}
+		@Nonnull @Override public Optional<TicketBoard> getPlayerTickets(Piece piece) {
+			return state.getPlayerTickets(piece);
+		}
+		@Nonnull @Override public ImmutableList<LogEntry> getMrXTravelLog() { return state.getMrXTravelLog(); }
+		@Nonnull @Override public ImmutableSet<Piece> getWinner() { return state.getWinner(); }
+		@Nonnull @Override public ImmutableSet<Move> getAvailableMoves() {
+			return state.getAvailableMoves().stream()
+					.filter(move -> !move.tickets().iterator().next().equals(Ticket.SECRET))
+					.collect(ImmutableSet.toImmutableSet());
+		}
+		@Nonnull @Override public GameState advance(Move move) { return new NoSecretState(state.advance(move)); }
+	}
+
+	@Test public void testFactoryPlaysTheSameGamesAsMyGameStateFactory() throws InterruptedException {
+		final var differential = new Differential(new MyGameStateFactory(), gameStateFactory);
+		assertThat(differential.run(0, 300, 500, 2)).isPositive();
+	}
+
+	@Test public void testDivergenceIsCaughtWithItsSeed() throws InterruptedException {
+		final var differential = new Differential(gameStateFactory,
+				(setup, mrX, detectives) -> new NoSecretState(gameStateFactory.build(setup, mrX, detectives)));
+		final DivergenceException e = catchThrowableOfType(
+				() -> differential.run(0, 100, 500, 2), DivergenceException.class);
+		assertThat(e).isNotNull();
+		assertThat(e.getMessage()).contains("available moves");
+		final DivergenceException replayed = catchThrowableOfType(
+				() -> differential.play(e.seed(), 500), DivergenceException.class);
+		assertThat(replayed).hasMessage(e.getMessage());
+		assertThat(replayed.ply()).isEqualTo(e.ply());
+	}
+}
@@ -0,0 +1,97 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+import uk.ac.bris.cs.scotlandyard.model.Piece.Detective;
+import uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.WHITE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests {@link HashedBoard#positionKey()} of game states
+ */
+public class GameStatePositionKeyTest extends ParameterisedModelTestBase {
+
+	private GameState startingState() {
+		var mrX = new Player(MRX, defaultMrXTickets(), 106);
+		var red = new Player(RED, defaultDetectiveTickets(), 91);
+		var green = new Player(GREEN, defaultDetectiveTickets(), 29);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 94);
+		var white = new Player(WHITE, defaultDetectiveTickets(), 50);
+		var yellow = new Player(YELLOW, defaultDetectiveTickets(), 138);
+		return gameStateFactory.build(standard24RoundSetup(), mrX, red, green, blue, white, yellow);
+	}
+
+	private static long positionKey(GameState state) {
+		assertThat(state).isInstanceOf(HashedBoard.class);
+		return ((HashedBoard) state).positionKey();
+	}
+
+	private static GameState play(GameState state, Move... moves) {
+		for (Move move : moves) state = state.advance(move);
+		return state;
+	}
+
+	@Test public void testDetectiveMoveOrderDoesNotChangeKey() {
+		GameState state = startingState().advance(x2(MRX, 106, TAXI, 105, BUS, 87));
+		GameState oneWay = play(state,
+				taxi(YELLOW, 138, 152),
+				taxi(WHITE, 50, 49),
+				bus(BLUE, 94, 77),
+				taxi(GREEN, 29, 41),
+				taxi(RED, 91, 105));
+		GameState otherWay = play(state,
+				taxi(RED, 91, 105),
+				taxi(GREEN, 29, 41),
+				bus(BLUE, 94, 77),
+				taxi(WHITE, 50, 49),
+				taxi(YELLOW, 138, 152));
+		assertThat(positionKey(oneWay)).isEqualTo(positionKey(otherWay));
+	}
+
+	@Test public void testEveryMoveChangesKey() {
+		GameState state = startingState();
+		GameState afterMrX = state.advance(taxi(MRX, 106, 105));
+		GameState afterRed = afterMrX.advance(taxi(RED, 91, 72));
+		assertThat(positionKey(afterMrX)).isNotEqualTo(positionKey(state));
+		assertThat(positionKey(afterRed)).isNotEqualTo(positionKey(afterMrX));
+		assertThat(positionKey(afterRed)).isNotEqualTo(positionKey(afterMrX.advance(taxi(RED, 91, 90))));
+	}
+
+	@Test public void testImmutableBoardKeyMatchesStateWhenMrXIsToMove() {
+		GameState state = play(startingState(),
+				taxi(MRX, 106, 105),
+				taxi(RED, 91, 72),
+				taxi(GREEN, 29, 41),
+				bus(BLUE, 94, 77),
+				taxi(WHITE, 50, 49),
+				taxi(YELLOW, 138, 152));
+		var locations = ImmutableMap.<Detective, Integer>builder();
+		var tickets = ImmutableMap.<Piece, ImmutableMap<Ticket, Integer>>builder();
+		for (Piece piece : state.getPlayers()) {
+			var counts = ImmutableMap.<Ticket, Integer>builder();
+			for (Ticket ticket : Ticket.values())
+				counts.put(ticket, state.getPlayerTickets(piece).orElseThrow().getCount(ticket));
+			tickets.put(piece, counts.build());
+			if (piece.isDetective())
+				locations.put((Detective) piece, state.getDetectiveLocation((Detective) piece).orElseThrow());
+		}
+		var board = new ImmutableBoard(state.getSetup(), locations.build(), tickets.build(),
+				state.getMrXTravelLog(), state.getWinner(), state.getAvailableMoves());
+		assertThat(board.positionKey()).isEqualTo(positionKey(state));
+	}
+
+}
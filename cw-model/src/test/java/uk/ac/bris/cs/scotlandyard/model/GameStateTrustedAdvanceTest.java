@@ -0,0 +1,71 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.WHITE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.UNDERGROUND;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that {@link TrustedGameState#advanceTrusted(Move)} ends up in the same game as
+ * {@link GameState#advance(Move)} for legal moves
+ */
+public class GameStateTrustedAdvanceTest extends ParameterisedModelTestBase {
+
+	private GameState startingState() {
+		var mrX = new Player(MRX, defaultMrXTickets(), 106);
+		var red = new Player(RED, defaultDetectiveTickets(), 91);
+		var green = new Player(GREEN, defaultDetectiveTickets(), 29);
+		var blue = new Player(BLUE, defaultDetectiveTickets(), 94);
+		var white = new Player(WHITE, defaultDetectiveTickets(), 50);
+		var yellow = new Player(YELLOW, defaultDetectiveTickets(), 138);
+		return gameStateFactory.build(standard24RoundSetup(), mrX, red, green, blue, white, yellow);
+	}
+
+	@Test public void testTrustedPlayoutMatchesValidatedPlayout() {
+		GameState state = startingState();
+		assertThat(state).isInstanceOf(TrustedGameState.class);
+		TrustedGameState trusted = (TrustedGameState) state;
+		Move[] moves = {
+				x2(MRX, 106, TAXI, 105, BUS, 87),
+				taxi(YELLOW, 138, 152),
+				taxi(WHITE, 50, 49),
+				bus(BLUE, 94, 77),
+				taxi(GREEN, 29, 41),
+				taxi(RED, 91, 105),
+				taxi(MRX, 87, 88),
+				bus(RED, 105, 87),
+				taxi(WHITE, 49, 66),
+				taxi(BLUE, 77, 96),
+				taxi(YELLOW, 152, 138),
+				taxi(GREEN, 41, 54),
+				x2(MRX, 88, TAXI, 89, UNDERGROUND, 67),
+				taxi(WHITE, 66, 67)};
+		for (Move move : moves) {
+			state = state.advance(move);
+			trusted = trusted.advanceTrusted(move);
+		}
+		assertGameIsOver(trusted);
+		assertThat(trusted.getWinner()).isEqualTo(state.getWinner());
+		assertThat(trusted.getMrXTravelLog()).isEqualTo(state.getMrXTravelLog());
+	}
+
+	@Test public void testTrustedAdvanceStillChecksMovesAfterwards() {
+		TrustedGameState state = (TrustedGameState) startingState();
+		state = state.advanceTrusted(taxi(MRX, 106, 105));
+		assertGameIsNotOver(state);
+		assertThat(state.getAvailableMoves()).allMatch(move -> move.commencedBy().isDetective());
+	}
+
+}
@@ -0,0 +1,45 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+
+/**
+ * Tests that {@link MovePool} hands out one instance per move
+ */
+public class MovePoolTest {
+
+	@Test public void testSingleMovesAreInterned() throws IOException {
+		var pool = MovePool.of(new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS));
+		SingleMove move = pool.single(RED, 1, TAXI, 8);
+		assertThat(move).isEqualTo(new SingleMove(RED, 1, TAXI, 8));
+		assertThat(pool.single(RED, 1, TAXI, 8)).isSameAs(move);
+		assertThat(pool.single(MRX, 1, TAXI, 8)).isNotEqualTo(move);
+	}
+
+	@Test public void testDoubleMovesAreInterned() throws IOException {
+		var pool = MovePool.of(new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS));
+		DoubleMove move = pool.doubleMove(MRX, 106, TAXI, 105, BUS, 87);
+		assertThat(move).isEqualTo(new DoubleMove(MRX, 106, TAXI, 105, BUS, 87));
+		assertThat(pool.doubleMove(MRX, 106, TAXI, 105, BUS, 87)).isSameAs(move);
+		assertThat(pool.doubleMove(MRX, 106, SECRET, 105, BUS, 87)).isNotEqualTo(move);
+	}
+
+	@Test public void testMovesOffTheGraphAreStillMade() throws IOException {
+		var pool = MovePool.of(new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS));
+		assertThat(pool.single(RED, 1, TAXI, 199)).isEqualTo(new SingleMove(RED, 1, TAXI, 199));
+		assertThat(pool.doubleMove(MRX, 1, TAXI, 8, TAXI, 199))
+				.isEqualTo(new DoubleMove(MRX, 1, TAXI, 8, TAXI, 199));
+	}
+
+}
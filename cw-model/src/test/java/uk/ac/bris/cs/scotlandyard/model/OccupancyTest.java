@@ -0,0 +1,34 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+
+/**
+ * Tests {@link Occupancy}
+ */
+public class OccupancyTest {
+
+	@Test public void testMovingADetectiveLeavesTheOriginalUnchanged() throws IOException {
+		var graph = CompactGraph.of(ScotlandYard.standardGraph());
+		var occupied = Occupancy.of(graph, ImmutableList.of(
+				new Player(RED, defaultDetectiveTickets(), 1),
+				new Player(BLUE, defaultDetectiveTickets(), 199)));
+		var moved = occupied.moved(1, 64);
+		assertThat(occupied.contains(1)).isTrue();
+		assertThat(occupied.contains(64)).isFalse();
+		assertThat(moved.contains(1)).isFalse();
+		assertThat(moved.contains(64)).isTrue();
+		assertThat(moved.contains(199)).isTrue();
+		assertThat(moved.contains(-1)).isFalse();
+		assertThat(moved.contains(1000)).isFalse();
+	}
+
+}
@@ -0,0 +1,81 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import uk.ac.bris.cs.scotlandyard.model.Move.DoubleMove;
+import uk.ac.bris.cs.scotlandyard.model.Move.SingleMove;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.UNDERGROUND;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests {@link PackedMove} and {@link MoveList}
+ */
+public class PackedMoveTest {
+
+	@Test public void testMovesSurviveARoundTrip() {
+		var moves = ImmutableList.<Move>of(
+				new SingleMove(MRX, 1, SECRET, 199),
+				new SingleMove(RED, 46, UNDERGROUND, 13),
+				new SingleMove(BLUE, 106, TAXI, 105),
+				new DoubleMove(MRX, 106, TAXI, 105, BUS, 87),
+				new DoubleMove(MRX, 13, SECRET, 89, SECRET, 128));
+		for (Move move : moves) {
+			long packed = PackedMove.encode(move);
+			assertThat(PackedMove.decode(packed)).isEqualTo(move);
+			assertThat(PackedMove.piece(packed)).isEqualTo(move.commencedBy());
+			assertThat(PackedMove.source(packed)).isEqualTo(move.source());
+		}
+		assertThat(PackedMove.encode(new SingleMove(RED, 46, UNDERGROUND, 13)))
+				.isNotEqualTo(PackedMove.encode(new SingleMove(BLUE, 46, UNDERGROUND, 13)));
+	}
+
+	@Test public void testNodesMustFitInSixteenBits() {
+		assertThatThrownBy(() -> PackedMove.encode(new SingleMove(MRX, 1, TAXI, 1 << 16)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testMoveListGrowsAndClears() {
+		var list = new MoveList(1);
+		var first = new SingleMove(RED, 1, TAXI, 8);
+		var second = new DoubleMove(MRX, 106, TAXI, 105, BUS, 87);
+		list.add(first);
+		list.add(second);
+		assertThat(list.size()).isEqualTo(2);
+		assertThat(list.contains(PackedMove.encode(second))).isTrue();
+		assertThat(list.toMoves()).containsExactly(first, second);
+		list.clear();
+		assertThat(list.isEmpty()).isTrue();
+		assertThatThrownBy(() -> list.get(0)).isInstanceOf(IndexOutOfBoundsException.class);
+	}
+
+	@Test public void testSearchBoardFillsMoveListWithAvailableMoves() throws IOException {
+		var board = new SearchBoard(new GameSetup(ScotlandYard.standardGraph(), ScotlandYard.STANDARD24ROUNDS),
+				new Player(MRX, defaultMrXTickets(), 106),
+				ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 91),
+						new Player(BLUE, defaultDetectiveTickets(), 94)));
+		var list = new MoveList();
+		board.generateMoves(list);
+		assertThat(list.toMoves()).containsExactlyInAnyOrderElementsOf(board.getAvailableMoves());
+
+		long key = board.positionKey();
+		board.make(list.get(0));
+		assertThat(board.getAvailableMoves()).allMatch(m -> m.commencedBy().isDetective());
+		board.unmake();
+		assertThat(board.positionKey()).isEqualTo(key);
+	}
+
+}
@@ -0,0 +1,112 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.generateDetectiveLocations;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.generateMrXLocation;
+
+/**
+ * Tests {@link Perft} against reference counts from the standard starting positions, so that any
+ * change to move generation or turn order that changes a count shows up here
+ */
+public class PerftTest extends ParameterisedModelTestBase {
+
+	/*
+		Counts from depth 0 for the starting positions of seeds 0, 1 and 2 (MrX at 35, 166 and 78)
+		with five detectives and the standard 24 rounds
+	*/
+	private static final long[][] STANDARD = {
+			{1, 94, 2162, 37412, 465300},
+			{1, 106, 2014, 29682, 321732},
+			{1, 187, 3740, 57892, 656748}};
+
+	/*
+		The same seeds with two detectives and only two rounds, the first revealing MrX, played to
+		the end of the game. Lines where MrX used a double in the first round are over after the
+		detectives' fourth ply, and every line is over after the sixth
+	*/
+	private static final long[][] TWO_ROUNDS = {
+			{1, 94, 1128, 5076, 4644, 50052, 268320, 0},
+			{1, 106, 954, 3816, 3528, 34104, 164528, 0},
+			{1, 187, 1683, 6657, 6114, 60426, 294120, 0}};
+
+	private static Player mrX(int seed) {
+		return new Player(MRX, defaultMrXTickets(), generateMrXLocation(seed));
+	}
+
+	private static ImmutableList<Player> detectives(int seed, int count) {
+		final var locations = generateDetectiveLocations(seed, count);
+		final var detectives = ImmutableList.<Player>builder();
+		for (int i = 0; i < count; i++)
+			detectives.add(new Player(ScotlandYard.DETECTIVES.asList().get(i), defaultDetectiveTickets(), locations.get(i)));
+		return detectives.build();
+	}
+
+	private static GameSetup twoRoundSetup() {
+		return new GameSetup(standardGraph(), ImmutableList.of(true, false));
+	}
+
+	@Test public void testStandardStartingPositions() {
+		for (int seed = 0; seed < STANDARD.length; seed++) {
+			final GameState state = gameStateFactory.build(standard24RoundSetup(), mrX(seed), detectives(seed, 5));
+			for (int depth = 0; depth < STANDARD[seed].length; depth++)
+				assertThat(Perft.perft(state, depth)).as("seed %d depth %d", seed, depth).isEqualTo(STANDARD[seed][depth]);
+		}
+	}
+
+	@Test public void testTwoRoundGamesToTheEnd() {
+		for (int seed = 0; seed < TWO_ROUNDS.length; seed++) {
+			final GameState state = gameStateFactory.build(twoRoundSetup(), mrX(seed), detectives(seed, 2));
+			for (int depth = 0; depth < TWO_ROUNDS[seed].length; depth++)
+				assertThat(Perft.perft(state, depth)).as("seed %d depth %d", seed, depth).isEqualTo(TWO_ROUNDS[seed][depth]);
+		}
+	}
+
+	@Test public void testSearchBoardCountsTheSameAndIsLeftAsItWas() {
+		final SearchBoard board = new SearchBoard(twoRoundSetup(), mrX(0), detectives(0, 2));
+		final long key = board.positionKey();
+		for (int depth = 0; depth < TWO_ROUNDS[0].length; depth++) {
+			assertThat(Perft.perft(board, depth)).as("depth %d", depth).isEqualTo(TWO_ROUNDS[0][depth]);
+			assertThat(board.depth()).isZero();
+			assertThat(board.positionKey()).isEqualTo(key);
+		}
+	}
+
+	@Test public void testDoublesNeedingASecondSecretAreLeftOut() {
+		final Player mrX = new Player(MRX, makeTickets(4, 3, 3, 1, 1), 45);
+		final var detectives = ImmutableList.of(new Player(RED, defaultDetectiveTickets(), 1));
+		final GameState state = gameStateFactory.build(standard24RoundSetup(), mrX, detectives);
+		final SearchBoard board = new SearchBoard(standard24RoundSetup(), mrX, detectives);
+		assertThat(state.getAvailableMoves()).contains(x2(MRX, 45, SECRET, 46, SECRET, 47));
+		assertThat(Perft.perft(state, 1)).isEqualTo(board.getAvailableMoves().size());
+		for (int depth = 0; depth <= 3; depth++)
+			assertThat(Perft.perft(state, depth)).as("depth %d", depth).isEqualTo(Perft.perft(board, depth));
+	}
+
+	@Test public void testDivideAddsUpToPerft() throws InterruptedException {
+		final GameState state = gameStateFactory.build(standard24RoundSetup(), mrX(1), detectives(1, 5));
+		final var divided = Perft.divide(state, 3, 4);
+		assertThat(divided.keySet()).containsExactlyElementsOf(state.getAvailableMoves());
+		assertThat(divided.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(STANDARD[1][3]);
+		for (Move move : state.getAvailableMoves().asList().subList(0, 5))
+			assertThat(divided.get(move)).isEqualTo(Perft.perft(state.advance(move), 2));
+	}
+
+	@Test public void testBadDepthsThrow() {
+		final GameState state = gameStateFactory.build(standard24RoundSetup(), mrX(0), detectives(0, 5));
+		assertThatThrownBy(() -> Perft.perft(state, -1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Perft.divide(state, 0, 1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Perft.divide(state, 1, 0)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,52 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.DOUBLE;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests ticket handling in {@link Player}
+ */
+public class PlayerTest {
+
+	@Test public void testUsingTicketsLeavesTheOriginalUnchanged() {
+		var mrX = new Player(MRX, defaultMrXTickets(), 1);
+		var used = mrX.use(ImmutableList.of(TAXI, BUS, DOUBLE));
+		assertThat(mrX.tickets()).isEqualTo(defaultMrXTickets());
+		assertThat(used.count(TAXI)).isEqualTo(mrX.count(TAXI) - 1);
+		assertThat(used.count(BUS)).isEqualTo(mrX.count(BUS) - 1);
+		assertThat(used.count(DOUBLE)).isEqualTo(mrX.count(DOUBLE) - 1);
+		assertThat(used.tickets()).containsEntry(SECRET, mrX.count(SECRET));
+		assertThat(used.give(ImmutableList.of(TAXI, BUS, DOUBLE))).isEqualTo(mrX);
+	}
+
+	@Test public void testUsingMissingTicketShouldThrow() {
+		var red = new Player(RED, ImmutableMap.of(TAXI, 1), 1);
+		assertThat(red.has(BUS)).isFalse();
+		assertThat(red.hasAtLeast(TAXI, 1)).isTrue();
+		assertThatThrownBy(() -> red.use(BUS)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> red.use(ImmutableList.of(TAXI, TAXI)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test public void testGivingOnlyAddsTicketsThePlayerHolds() {
+		var red = new Player(RED, ImmutableMap.of(TAXI, 1), 1);
+		var given = red.give(ImmutableList.of(TAXI, BUS));
+		assertThat(given.tickets()).isEqualTo(ImmutableMap.of(TAXI, 2));
+		assertThat(given.at(5).tickets()).isEqualTo(ImmutableMap.of(TAXI, 2));
+		assertThat(new Player(RED, ImmutableMap.of(TAXI, 0), 1))
+				.isNotEqualTo(new Player(RED, ImmutableMap.of(), 1));
+	}
+
+}
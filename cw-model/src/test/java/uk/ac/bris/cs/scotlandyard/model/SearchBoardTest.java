@@ -0,0 +1,114 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import uk.ac.bris.cs.scotlandyard.model.Board.GameState;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.BLUE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.GREEN;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.RED;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.WHITE;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.Detective.YELLOW;
+import static uk.ac.bris.cs.scotlandyard.model.Piece.MrX.MRX;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.UNDERGROUND;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultDetectiveTickets;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.defaultMrXTickets;
+
+/**
+ * Tests that {@link SearchBoard} plays the same game as the game state factories and that
+ * {@link SearchBoard#unmake()} takes moves back
+ */
+public class SearchBoardTest extends ParameterisedModelTestBase {
+
+	private static final Player MRX_PLAYER = new Player(MRX, defaultMrXTickets(), 106);
+	private static final ImmutableList<Player> DETECTIVES = ImmutableList.of(
+			new Player(RED, defaultDetectiveTickets(), 91),
+			new Player(GREEN, defaultDetectiveTickets(), 29),
+			new Player(BLUE, defaultDetectiveTickets(), 94),
+			new Player(WHITE, defaultDetectiveTickets(), 50),
+			new Player(YELLOW, defaultDetectiveTickets(), 138));
+
+	private static void assertSamePosition(SearchBoard board, GameState state) {
+		assertThat(board.getAvailableMoves()).isEqualTo(state.getAvailableMoves());
+		assertThat(board.getMrXTravelLog()).isEqualTo(state.getMrXTravelLog());
+		assertThat(board.getWinner()).isEqualTo(state.getWinner());
+	}
+
+	@Test public void testMakeFollowsAdvance() {
+		GameState state = gameStateFactory.build(standard24RoundSetup(), MRX_PLAYER, DETECTIVES);
+		SearchBoard board = new SearchBoard(standard24RoundSetup(), MRX_PLAYER, DETECTIVES);
+		Move[] moves = {
+				x2(MRX, 106, TAXI, 105, BUS, 87),
+				taxi(YELLOW, 138, 152),
+				taxi(WHITE, 50, 49),
+				bus(BLUE, 94, 77),
+				taxi(GREEN, 29, 41),
+				taxi(RED, 91, 105),
+				taxi(MRX, 87, 88),
+				bus(RED, 105, 87),
+				taxi(WHITE, 49, 66),
+				taxi(BLUE, 77, 96),
+				taxi(YELLOW, 152, 138),
+				taxi(GREEN, 41, 54),
+				x2(MRX, 88, TAXI, 89, UNDERGROUND, 67),
+				taxi(WHITE, 66, 67)};
+		assertSamePosition(board, state);
+		for (Move move : moves) {
+			state = state.advance(move);
+			board.make(move);
+			assertSamePosition(board, state);
+		}
+		assertGameIsOver(board);
+		assertThat(board.depth()).isEqualTo(moves.length);
+	}
+
+	@Test public void testUnmakeRestoresPosition() {
+		SearchBoard board = new SearchBoard(standard24RoundSetup(), MRX_PLAYER, DETECTIVES);
+		var moves = board.getAvailableMoves();
+		long key = board.positionKey();
+		board.make(x2(MRX, 106, TAXI, 105, BUS, 87));
+		board.make(taxi(RED, 91, 105));
+		board.unmake();
+		board.unmake();
+		assertThat(board.depth()).isZero();
+		assertThat(board.positionKey()).isEqualTo(key);
+		assertThat(board.getAvailableMoves()).isEqualTo(moves);
+		assertThat(board.getMrXTravelLog()).isEmpty();
+		assertThat(board.mrXLocation()).isEqualTo(106);
+		assertThat(board.getPlayerTickets(RED).orElseThrow().getCount(TAXI)).isEqualTo(11);
+		assertThat(board.getPlayerTickets(MRX).orElseThrow().getCount(TAXI)).isEqualTo(4);
+	}
+
+	@Test public void testEveryGeneratedMoveCanBeMadeWithOneSecretTicket() {
+		var mrX = new Player(MRX, makeTickets(4, 3, 3, 1, 1), 45);
+		var red = new Player(RED, defaultDetectiveTickets(), 1);
+		GameState state = gameStateFactory.build(standard24RoundSetup(), mrX, ImmutableList.of(red));
+		SearchBoard board = new SearchBoard(standard24RoundSetup(), mrX, ImmutableList.of(red));
+		long key = board.positionKey();
+		var moves = board.getAvailableMoves();
+		assertThat(moves).isNotEmpty();
+		for (Move move : moves) {
+			board.make(move);
+			assertThat(board.getMrXTravelLog()).isEqualTo(state.advance(move).getMrXTravelLog());
+			board.unmake();
+			assertThat(board.positionKey()).isEqualTo(key);
+		}
+		// the factories also offer the two secret hops, which advance refuses
+		assertThat(moves).contains(x2(MRX, 45, SECRET, 46, TAXI, 47))
+				.doesNotContain(x2(MRX, 45, SECRET, 46, SECRET, 47))
+				.isSubsetOf(state.getAvailableMoves());
+	}
+
+	@Test public void testUnmakeWithNoMoveMadeShouldThrow() {
+		SearchBoard board = new SearchBoard(standard24RoundSetup(), MRX_PLAYER, DETECTIVES);
+		assertThatThrownBy(board::unmake).isInstanceOf(IllegalStateException.class);
+	}
+
+}
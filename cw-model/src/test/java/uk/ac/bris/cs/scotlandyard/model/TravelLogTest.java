@@ -0,0 +1,37 @@
+package uk.ac.bris.cs.scotlandyard.model;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.BUS;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.SECRET;
+import static uk.ac.bris.cs.scotlandyard.model.ScotlandYard.Ticket.TAXI;
+
+/**
+ * Tests {@link TravelLog} and the packed form of {@link LogEntry}
+ */
+public class TravelLogTest {
+
+	@Test public void testEntriesSurviveEncoding() {
+		for (LogEntry entry : new LogEntry[]{
+				LogEntry.hidden(TAXI), LogEntry.hidden(SECRET), LogEntry.reveal(BUS, 1), LogEntry.reveal(SECRET, 199)}) {
+			assertThat(LogEntry.decode(entry.encode())).isEqualTo(entry);
+		}
+		assertThat(LogEntry.encode(TAXI, -1)).isEqualTo(LogEntry.hidden(TAXI).encode());
+	}
+
+	@Test public void testAppendingLeavesTheOriginalUnchanged() {
+		var log = TravelLog.empty().append(LogEntry.hidden(TAXI));
+		var branch1 = log.append(BUS, 46);
+		var branch2 = log.append(SECRET, -1);
+		assertThat(log.entries()).containsExactly(LogEntry.hidden(TAXI));
+		assertThat(branch1.entries()).containsExactly(LogEntry.hidden(TAXI), LogEntry.reveal(BUS, 46));
+		assertThat(branch2.entries()).containsExactly(LogEntry.hidden(TAXI), LogEntry.hidden(SECRET));
+		assertThat(branch1.size()).isEqualTo(2);
+		assertThat(branch1.entry(0)).isEqualTo(LogEntry.hidden(TAXI).encode());
+		assertThat(TravelLog.of(branch1.entries()).entries()).isEqualTo(branch1.entries());
+		assertThatThrownBy(() -> branch1.entry(2)).isInstanceOf(IndexOutOfBoundsException.class);
+	}
+
+}